@@ -1,31 +1,89 @@
 package com.example.demo.config;
 
+import com.example.demo.service.BroadcastingCache;
+import com.example.demo.service.CacheInvalidationBus;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Profile;
 
-import java.util.Arrays;
+import java.time.Duration;
+import java.util.List;
 
+/**
+ * Bounded, per-node Caffeine caches in front of Postgres.
+ *
+ * Every cache records stats, and actuator binds them as cache.gets{result=hit|miss},
+ * cache.puts, cache.evictions and cache.size. The manager is transaction-aware: puts and
+ * evictions made inside a transaction are applied only after it commits, so an update
+ * cannot be re-cached from data that is then rolled back.
+ *
+ * With several nodes, each cache is also wrapped in a BroadcastingCache so evictions reach the
+ * other nodes through CacheInvalidationBus (app.cache.invalidation.enabled, on by default).
+ */
 @Configuration
 @EnableCaching
 public class CacheConfig {
-    
+    public static final String PROFILES = "profiles";
+    public static final String STARTUPS = "startups";
+
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(ObjectProvider<CacheInvalidationBus> invalidationBus,
+                                     @Value("${app.cache.detail.max-size:10000}") long detailMaxSize,
+                                     @Value("${app.cache.detail.ttl:10m}") Duration detailTtl,
+                                     @Value("${app.cache.listing.max-size:500}") long listingMaxSize,
+                                     @Value("${app.cache.listing.ttl:60s}") Duration listingTtl) {
         SimpleCacheManager cacheManager = new SimpleCacheManager();
-        cacheManager.setCaches(Arrays.asList(
-            new ConcurrentMapCache("members"),
-            new ConcurrentMapCache("memberDetails"),
-            new ConcurrentMapCache("filters"),
-            new ConcurrentMapCache("searchResults")
+        cacheManager.setCaches(List.of(
+            // Detail lookups by id, evicted per key on update/delete
+            cache(PROFILES, detailMaxSize, detailTtl),
+            cache(STARTUPS, detailMaxSize, detailTtl),
+            // Listing/search results, short-lived and evicted wholesale
+            cache("members", listingMaxSize, listingTtl),
+            cache("memberDetails", listingMaxSize, listingTtl),
+            cache("filters", listingMaxSize, listingTtl),
+            cache("searchResults", listingMaxSize, listingTtl)
         ));
-        return cacheManager;
+        cacheManager.initializeCaches();
+
+        CacheInvalidationBus bus = invalidationBus.getIfAvailable();
+        if (bus == null) {
+            return new TransactionAwareCacheManagerProxy(cacheManager);
+        }
+        // Broadcast outermost: the NOTIFY joins the writer's transaction, the local eviction
+        // is deferred to after commit, and remote events go straight to the Caffeine caches
+        SimpleCacheManager broadcasting = new SimpleCacheManager();
+        broadcasting.setCaches(cacheManager.getCacheNames().stream()
+                .map(name -> (Cache) new BroadcastingCache(new TransactionAwareCacheDecorator(cacheManager.getCache(name)), bus))
+                .toList());
+        broadcasting.initializeCaches();
+        bus.attach(cacheManager);
+        return broadcasting;
+    }
+
+    /** Lets actuator bind cache.gets/puts/evictions through the BroadcastingCache decorator. */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public CacheMeterBinderProvider<BroadcastingCache> broadcastingCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(
+                (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache(), cache.getName(), tags);
+    }
+
+    private static Cache cache(String name, long maxSize, Duration ttl) {
+        return new CaffeineCache(name, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build());
     }
-    
-    // Production cache configuration would use Redis or Caffeine
-    // Configured through application.yml
-}
\ No newline at end of file
+}
@@ -1,7 +1,10 @@
 package com.example.demo.config;
 
+import com.example.demo.security.BoundedPasswordEncoder;
 import com.example.demo.security.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -12,8 +15,11 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -22,6 +28,8 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
@@ -34,6 +42,25 @@ public class SecurityConfig {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserDetailsPasswordService userDetailsPasswordService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auth.password.encoder:bcrypt}")
+    private String passwordEncoderId;
+
+    @Value("${app.auth.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    // 0 = one thread per core
+    @Value("${app.auth.password.threads:0}")
+    private int hashThreads;
+
+    @Value("${app.auth.password.queue-capacity:64}")
+    private int hashQueueCapacity;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -66,6 +93,7 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
@@ -74,9 +102,20 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    /**
+     * New hashes use app.auth.password.encoder (bcrypt or argon2); stored hashes of either kind,
+     * including legacy ones without an {id} prefix (BCrypt), keep verifying. Hashes that are not in
+     * the current format or cost are rewritten on the next successful login.
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(passwordEncoderId, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(encoders.get("bcrypt"));
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(delegating, threads, hashQueueCapacity, meterRegistry);
     }
 
     @Bean
@@ -86,7 +125,8 @@ public class SecurityConfig {
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
         configuration.setAllowCredentials(true);
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "X-Next-Cursor",
+                "RateLimit-Limit", "RateLimit-Remaining", "RateLimit-Reset", "Retry-After"));
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -24,6 +24,23 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Value("${app.websocket.allowed-origins:http://localhost:3000}")
     private String allowedOrigins;
 
+    // simple: in-JVM broker (single node); relay: external STOMP broker;
+    // postgres: in-JVM broker plus cross-node fan-out via ClusterChatRelay
+    @Value("${app.websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${app.websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${app.websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         String[] origins = allowedOrigins.split(",");
@@ -35,7 +52,20 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic", "/queue");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            registry.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relayHost)
+                .setRelayPort(relayPort)
+                .setClientLogin(relayLogin)
+                .setClientPasscode(relayPasscode)
+                .setSystemLogin(relayLogin)
+                .setSystemPasscode(relayPasscode)
+                // Let nodes share their user registries and resolve /user destinations for each other
+                .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else {
+            registry.enableSimpleBroker("/topic", "/queue");
+        }
         registry.setApplicationDestinationPrefixes("/app");
         registry.setUserDestinationPrefix("/user");
     }
@@ -5,7 +5,8 @@ import com.example.demo.entity.AuthUser;
 import com.example.demo.entity.EmailChangeRequest;
 import com.example.demo.repository.AuthUserRepository;
 import com.example.demo.repository.EmailChangeRequestRepository;
-import com.example.demo.service.EmailService;
+import com.example.demo.service.AccountService;
+import com.example.demo.service.UserReferenceCache;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -21,17 +22,20 @@ import java.util.Map;
 public class AccountController {
     private final AuthUserRepository authUserRepository;
     private final PasswordEncoder passwordEncoder;
-    private final EmailService emailService;
+    private final AccountService accountService;
     private final EmailChangeRequestRepository emailChangeRequestRepository;
+    private final UserReferenceCache userReferenceCache;
 
     public AccountController(AuthUserRepository authUserRepository,
                              PasswordEncoder passwordEncoder,
-                             EmailService emailService,
-                             EmailChangeRequestRepository emailChangeRequestRepository) {
+                             AccountService accountService,
+                             EmailChangeRequestRepository emailChangeRequestRepository,
+                             UserReferenceCache userReferenceCache) {
         this.authUserRepository = authUserRepository;
         this.passwordEncoder = passwordEncoder;
-        this.emailService = emailService;
+        this.accountService = accountService;
         this.emailChangeRequestRepository = emailChangeRequestRepository;
+        this.userReferenceCache = userReferenceCache;
     }
 
     @GetMapping("/me")
@@ -73,14 +77,7 @@ public class AccountController {
         if (authUserRepository.existsByEmail(req.newEmail)) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Email already in use"));
         }
-        EmailChangeRequest ecr = new EmailChangeRequest();
-        ecr.setUser(user);
-        ecr.setNewEmail(req.newEmail);
-        ecr.setToken(java.util.UUID.randomUUID().toString());
-        ecr.setExpiresAt(LocalDateTime.now().plusDays(2));
-        emailChangeRequestRepository.save(ecr);
-        emailService.sendEmail(req.newEmail, "Confirm your new email",
-                "<p>Confirm: <a href=" + "${APP_ORIGIN:http://localhost:3000}" + "/account/email/confirm?token=" + ecr.getToken() + ">Confirm Email</a></p>");
+        accountService.requestEmailChange(user, req.newEmail);
         return ResponseEntity.ok(Map.of("message", "Confirmation sent to new email"));
     }
 
@@ -111,6 +108,7 @@ public class AccountController {
         AuthUser user = authUserRepository.findByUsername(auth.getName()).orElseThrow();
         user.setUsername(newUsername);
         authUserRepository.save(user);
+        userReferenceCache.evict(user.getId(), auth.getName());
         return ResponseEntity.ok(Map.of("message", "Username updated"));
     }
 }
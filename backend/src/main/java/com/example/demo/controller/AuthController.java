@@ -3,9 +3,11 @@ package com.example.demo.controller;
 import com.example.demo.dto.AuthDtos.*;
 import com.example.demo.entity.*;
 import com.example.demo.repository.*;
+import com.example.demo.security.JwtUserPrincipal;
+import com.example.demo.security.RateLimited;
 import com.example.demo.security.JwtUtil;
 import com.example.demo.service.*;
-import io.github.bucket4j.Bucket;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Value;
 import org.slf4j.Logger;
@@ -15,12 +17,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.Map;
 
 @RestController
@@ -32,46 +34,37 @@ public class AuthController {
     private final JwtUtil jwtUtil;
     private final AuthUserRepository authUserRepository;
     private final PasswordEncoder passwordEncoder;
-    private final UserProfileService userProfileService;
+    private final AccountService accountService;
     private final JwtTokenService jwtTokenService;
     private final EmailVerificationTokenRepository emailVerificationTokenRepository;
     private final PasswordResetTokenRepository passwordResetTokenRepository;
-    private final EmailChangeRequestRepository emailChangeRequestRepository;
     private final RefreshTokenRepository refreshTokenRepository;
-    private final EmailService emailService;
     private final RateLimiterService rateLimiterService;
-    private final String appOrigin;
     private final boolean requireEmailVerification;
 
     public AuthController(AuthenticationManager authenticationManager,
                           JwtUtil jwtUtil,
                           AuthUserRepository authUserRepository,
                           PasswordEncoder passwordEncoder,
-                          UserProfileService userProfileService,
+                          AccountService accountService,
                           JwtTokenService jwtTokenService,
                           EmailVerificationTokenRepository emailVerificationTokenRepository,
                           PasswordResetTokenRepository passwordResetTokenRepository,
-                          EmailChangeRequestRepository emailChangeRequestRepository,
                           RefreshTokenRepository refreshTokenRepository,
-                          EmailService emailService,
                           RateLimiterService rateLimiterService,
-                           @Value("${app.origin:http://localhost:3000}") String appOrigin,
                            @Value("${app.auth.requireEmailVerification:true}") boolean requireEmailVerification) {
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
         this.authUserRepository = authUserRepository;
         this.passwordEncoder = passwordEncoder;
-        this.userProfileService = userProfileService;
+        this.accountService = accountService;
         this.jwtTokenService = jwtTokenService;
         this.emailVerificationTokenRepository = emailVerificationTokenRepository;
         this.passwordResetTokenRepository = passwordResetTokenRepository;
-        this.emailChangeRequestRepository = emailChangeRequestRepository;
-        this.emailService = emailService;
         this.rateLimiterService = rateLimiterService;
         this.refreshTokenRepository = refreshTokenRepository;
-        this.appOrigin = appOrigin;
         this.requireEmailVerification = requireEmailVerification;
-        log.info("AuthController initialized. requireEmailVerification={} appOrigin={}", this.requireEmailVerification, this.appOrigin);
+        log.info("AuthController initialized. requireEmailVerification={}", this.requireEmailVerification);
     }
 
     @PostMapping("/register")
@@ -91,32 +84,18 @@ public class AuthController {
         user.setRole("USER");
         user.setEnabled(true);
         user.setLastLogin(null);
-        user.setCreatedAt(LocalDateTime.now());
-        user.setUpdatedAt(LocalDateTime.now());
-        user = authUserRepository.save(user);
-        userProfileService.createProfileForUser(user);
-
-        // Email verification token (24h)
-        EmailVerificationToken evt = new EmailVerificationToken();
-        evt.setUser(user);
-        evt.setToken(java.util.UUID.randomUUID().toString());
-        evt.setExpiresAt(LocalDateTime.now().plusDays(1));
-        emailVerificationTokenRepository.save(evt);
-        String verifyLink = appOrigin + "/verify-email?token=" + evt.getToken();
-        emailService.sendEmail(user.getEmail(), "Verify your email",
-                "<p>Click to verify: <a href='" + verifyLink + "'>Verify Email</a></p>");
+        // User, profile, verification token and its email commit together
+        accountService.register(user);
 
         return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("message", "Registration successful. Please verify your email."));
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest req, @RequestHeader(value = "X-Forwarded-For", required = false) String ip,
+    @RateLimited(key = "login", capacity = 5, per = "1m", by = RateLimited.KeyBy.IP)
+    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest req, HttpServletRequest request,
                                    @RequestHeader(value = "User-Agent", required = false) String userAgent) {
-        String clientIp = ip != null ? ip : "unknown";
-        Bucket bucket = rateLimiterService.resolveBucket("login:" + clientIp, 5, Duration.ofMinutes(1));
-        if (!bucket.tryConsume(1)) {
-            return ResponseEntity.status(429).body(Map.of("error", "Too many login attempts"));
-        }
+        // Resolved from X-Forwarded-For only behind a trusted proxy (server.forward-headers-strategy)
+        String clientIp = request.getRemoteAddr();
         log.info("Login attempt for {}", req.usernameOrEmail);
         AuthUser user = authUserRepository.findByUsername(req.usernameOrEmail)
                 .or(() -> authUserRepository.findByEmail(req.usernameOrEmail))
@@ -127,8 +106,9 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Email not verified"));
 
         authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(user.getUsername(), req.password));
+        // The provider may have just rehashed the password; don't write back the stale entity
         user.setLastLogin(LocalDateTime.now());
-        authUserRepository.save(user);
+        authUserRepository.updateLastLogin(user.getId(), user.getLastLogin());
         Map<String, String> tokens = jwtTokenService.generateTokensForUser(user, clientIp, userAgent);
         return ResponseEntity.ok(Map.of("accessToken", tokens.get("access"), "refreshToken", tokens.get("refresh")));
     }
@@ -149,16 +129,18 @@ public class AuthController {
     }
 
     @PostMapping("/refresh")
-    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshRequest req, @RequestHeader(value = "X-Forwarded-For", required = false) String ip,
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshRequest req, HttpServletRequest request,
                                      @RequestHeader(value = "User-Agent", required = false) String userAgent) {
-        RefreshToken current = refreshTokenRepository.findByTokenId(req.refreshToken)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
-        AuthUser user = current.getUser();
-        RefreshToken next = jwtTokenService.rotateRefreshToken(current.getTokenId(), user, ip, userAgent);
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("userId", user.getId()); claims.put("email", user.getEmail()); claims.put("role", user.getRole());
-        String access = jwtUtil.generateToken(user.getUsername(), claims);
-        return ResponseEntity.ok(Map.of("accessToken", access, "refreshToken", next.getTokenId()));
+        // Same source as login: the raw X-Forwarded-For header is client-controlled
+        String clientIp = request.getRemoteAddr();
+        JwtTokenService.Rotation rotation;
+        try {
+            rotation = jwtTokenService.rotateRefreshToken(req.refreshToken, clientIp, userAgent);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", e.getMessage()));
+        }
+        String access = jwtTokenService.generateAccessToken(rotation.user());
+        return ResponseEntity.ok(Map.of("accessToken", access, "refreshToken", rotation.refreshTokenId()));
     }
 
     @PostMapping("/logout")
@@ -173,23 +155,22 @@ public class AuthController {
         return ResponseEntity.ok(Map.of("message", "Logged out"));
     }
 
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAll(Authentication authentication) {
+        Long userId = JwtUserPrincipal.userIdOf(authentication);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not authenticated"));
+        }
+        jwtTokenService.logoutEverywhere(userId);
+        return ResponseEntity.ok(Map.of("message", "Logged out on all devices"));
+    }
+
     @PostMapping("/forgot-password")
     public ResponseEntity<?> forgotPassword(@Valid @RequestBody ForgotPasswordRequest req) {
-        Bucket bucket = rateLimiterService.resolveBucket("forgot:" + req.email, 5, Duration.ofHours(1));
-        if (!bucket.tryConsume(1)) {
+        if (!rateLimiterService.tryConsume("forgot:" + req.email, 5, Duration.ofHours(1)).allowed()) {
             return ResponseEntity.status(429).body(Map.of("error", "Too many requests"));
         }
-        AuthUser user = authUserRepository.findByEmail(req.email).orElse(null);
-        if (user != null) {
-            PasswordResetToken prt = new PasswordResetToken();
-            prt.setUser(user);
-            prt.setToken(java.util.UUID.randomUUID().toString());
-            prt.setExpiresAt(LocalDateTime.now().plusHours(2));
-            passwordResetTokenRepository.save(prt);
-            String resetLink = appOrigin + "/reset-password?token=" + prt.getToken();
-            emailService.sendEmail(user.getEmail(), "Reset your password",
-                    "<p>Reset link: <a href='" + resetLink + "'>Reset Password</a></p>");
-        }
+        accountService.requestPasswordReset(req.email);
         return ResponseEntity.ok(Map.of("message", "If that email exists, a reset link has been sent."));
     }
 
@@ -205,6 +186,8 @@ public class AuthController {
         authUserRepository.save(user);
         prt.setUsed(true);
         passwordResetTokenRepository.save(prt);
+        // Sessions opened with the old password must not survive the reset
+        jwtTokenService.logoutEverywhere(user.getId());
         return ResponseEntity.ok(Map.of("message", "Password updated"));
     }
 }
\ No newline at end of file
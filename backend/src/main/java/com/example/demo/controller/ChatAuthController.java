@@ -1,10 +1,13 @@
 package com.example.demo.controller;
 
+import com.example.demo.security.JwtUserPrincipal;
 import com.example.demo.security.JwtUtil;
+import com.example.demo.service.JwtTokenService;
+import com.example.demo.service.UserStatusCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -19,10 +22,23 @@ public class ChatAuthController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private UserStatusCache userStatusCache;
+
     @GetMapping("/ws-ticket")
-    public ResponseEntity<Map<String, String>> issueWsTicket(@AuthenticationPrincipal User user) {
+    public ResponseEntity<Map<String, String>> issueWsTicket(@AuthenticationPrincipal JwtUserPrincipal user) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("ws", true);
+        if (user.getUserId() != null) {
+            claims.put("userId", user.getUserId());
+            claims.put(JwtTokenService.GENERATION_CLAIM, userStatusCache.tokenGeneration(user.getUserId()));
+        }
+        // Lets the ticket take the claims-only path in JwtAuthenticationFilter
+        user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(a -> a.startsWith("ROLE_"))
+                .findFirst()
+                .ifPresent(a -> claims.put("role", a.substring("ROLE_".length())));
         String token = jwtUtil.generateToken(user.getUsername(), claims);
         Map<String, String> resp = new HashMap<>();
         resp.put("token", token);
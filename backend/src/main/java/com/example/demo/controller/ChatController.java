@@ -1,10 +1,9 @@
 package com.example.demo.controller;
 
-import com.example.demo.entity.AuthUser;
-import com.example.demo.entity.ChatConversation;
-import com.example.demo.entity.ChatMessage;
-import com.example.demo.repository.AuthUserRepository;
+import com.example.demo.dto.ChatDtos;
+import com.example.demo.security.JwtUserPrincipal;
 import com.example.demo.service.ChatService;
+import com.example.demo.service.UserReferenceCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -12,7 +11,6 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
@@ -28,23 +26,21 @@ public class ChatController {
     private ChatService chatService;
 
     @Autowired
-    private AuthUserRepository authUserRepository;
+    private UserReferenceCache userReferenceCache;
 
     // no REST mappings here; REST lives in ChatRestController
 
     // STOMP: /app/chat.send/{username}
     @MessageMapping("/chat.send/{username}")
     @SendToUser("/queue/ack")
-    public ChatMessage sendMessage(@DestinationVariable("username") String toUsername,
+    public ChatDtos.ChatMessageDto sendMessage(@DestinationVariable("username") String toUsername,
                                    @Payload Map<String, String> payload,
                                    SimpMessageHeaderAccessor headers,
-                                   @AuthenticationPrincipal User springUser) {
+                                   @AuthenticationPrincipal JwtUserPrincipal me) {
         String content = payload.get("content");
-        AuthUser me = authUserRepository.findByUsername(springUser.getUsername()).orElseThrow();
-        AuthUser other = authUserRepository.findByUsername(toUsername).orElseThrow();
+        UserReferenceCache.UserRef other = userReferenceCache.requireByUsername(toUsername);
         // Persist message and notify recipient
-        ChatMessage saved = chatService.sendMessage(me.getId(), other.getId(), content);
-        return saved;
+        return chatService.sendMessage(me.getUserId(), other.id(), content, payload.get("clientMessageId"));
     }
 }
 
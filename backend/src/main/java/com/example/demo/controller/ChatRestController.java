@@ -1,16 +1,22 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.ChatCursor;
 import com.example.demo.dto.ChatDtos;
-import com.example.demo.entity.AuthUser;
 import com.example.demo.entity.ChatMessage;
 import com.example.demo.repository.AuthUserRepository;
+import com.example.demo.repository.ChatConversationRepository;
+import com.example.demo.security.JwtUserPrincipal;
+import com.example.demo.security.RateLimited;
 import com.example.demo.service.ChatService;
+import com.example.demo.service.UserReferenceCache;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -19,80 +25,104 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/chat")
 public class ChatRestController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ChatService chatService;
 
     @Autowired
     private AuthUserRepository authUserRepository;
 
+    @Autowired
+    private UserReferenceCache userReferenceCache;
+
     @GetMapping("/conversations")
-    public List<ChatDtos.ChatConversationDto> getConversations(Principal principal) {
-        AuthUser me = authUserRepository.findByUsername(principal.getName()).orElseThrow();
-        return chatService.listConversations(me.getId()).stream().map(c -> {
+    public ResponseEntity<?> getConversations(@RequestParam(value = "limit", defaultValue = "50") int limit,
+                                              @RequestParam(value = "before", required = false) String before,
+                                              Principal principal) {
+        ChatCursor cursor;
+        try {
+            cursor = ChatCursor.decode(before);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Invalid cursor"));
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Long meId = currentUserId(principal);
+        List<ChatConversationRepository.InboxRow> rows = chatService.listInbox(meId, cursor, pageSize);
+        List<ChatDtos.ChatConversationDto> body = rows.stream().map(row -> {
             ChatDtos.ChatConversationDto dto = new ChatDtos.ChatConversationDto();
-            dto.id = c.getId();
-            String other = c.getUser1().getId().equals(me.getId()) ? c.getUser2().getUsername() : c.getUser1().getUsername();
-            dto.otherUsername = other;
-            dto.updatedAt = c.getUpdatedAt();
-            var last = chatService.getLastMessage(c.getId());
-            if (last != null) {
-                dto.lastMessage = last.getContent();
-                dto.lastMessageAt = last.getCreatedAt();
-            }
-            dto.unreadCount = (int) chatService.countUnread(c.getId(), me.getId());
+            dto.id = row.getConversationId();
+            dto.otherUsername = row.getOtherUsername();
+            dto.updatedAt = row.getUpdatedAt();
+            dto.lastMessage = row.getLastMessage();
+            dto.lastMessageAt = row.getLastMessageAt();
+            dto.unreadCount = (int) chatService.countUnread(row.getConversationId(), meId);
             return dto;
         }).collect(Collectors.toList());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (rows.size() == pageSize) {
+            ChatConversationRepository.InboxRow last = rows.get(rows.size() - 1);
+            response.header(NEXT_CURSOR_HEADER, new ChatCursor(last.getUpdatedAt(), last.getConversationId()).encode());
+        }
+        return response.body(body);
     }
 
     @GetMapping("/messages/{username}")
-    public List<ChatDtos.ChatMessageDto> getMessages(@PathVariable("username") String otherUsername, Principal principal) {
-        AuthUser me = authUserRepository.findByUsername(principal.getName()).orElseThrow();
-        AuthUser other = authUserRepository.findByUsername(otherUsername).orElseThrow();
-        return chatService.listMessages(me.getId(), other.getId()).stream().map(m -> {
-            ChatDtos.ChatMessageDto dto = new ChatDtos.ChatMessageDto();
-            dto.id = m.getId();
-            dto.content = m.getContent();
-            dto.createdAt = m.getCreatedAt();
-            ChatDtos.SimpleUser s = new ChatDtos.SimpleUser();
-            s.username = m.getSender().getUsername();
-            ChatDtos.SimpleUser r = new ChatDtos.SimpleUser();
-            r.username = m.getRecipient().getUsername();
-            dto.sender = s;
-            dto.recipient = r;
-            return dto;
-        }).collect(Collectors.toList());
+    public ResponseEntity<?> getMessages(@PathVariable("username") String otherUsername,
+                                         @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                         @RequestParam(value = "before", required = false) String before,
+                                         Principal principal) {
+        ChatCursor cursor;
+        try {
+            cursor = ChatCursor.decode(before);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Invalid cursor"));
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        UserReferenceCache.UserRef other = userReferenceCache.requireByUsername(otherUsername);
+        Long conversationId = chatService.findConversationId(currentUserId(principal), other.id()).orElse(null);
+        if (conversationId == null) {
+            return ResponseEntity.ok(List.of());
+        }
+        List<ChatMessage> page = chatService.listMessages(conversationId, cursor, pageSize);
+        // Page is fetched newest first; clients render threads oldest first
+        List<ChatDtos.ChatMessageDto> body = new ArrayList<>(page.size());
+        for (int i = page.size() - 1; i >= 0; i--) {
+            body.add(ChatDtos.ChatMessageDto.from(page.get(i)));
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == pageSize) {
+            ChatMessage oldest = page.get(page.size() - 1);
+            response.header(NEXT_CURSOR_HEADER, new ChatCursor(oldest.getCreatedAt(), oldest.getId()).encode());
+        }
+        return response.body(body);
     }
 
     @PostMapping("/send")
+    @RateLimited(key = "chat-send", capacity = 60, per = "1m")
     public ChatDtos.ChatMessageDto sendViaRest(@RequestBody Map<String, String> body, Principal principal) {
         String toUsername = body.get("to");
         String content = body.get("content");
-        AuthUser me = authUserRepository.findByUsername(principal.getName()).orElseThrow();
-        AuthUser other = authUserRepository.findByUsername(toUsername).orElseThrow();
-        ChatMessage saved = chatService.sendMessage(me.getId(), other.getId(), content);
-        ChatDtos.ChatMessageDto dto = new ChatDtos.ChatMessageDto();
-        dto.id = saved.getId();
-        dto.content = saved.getContent();
-        dto.createdAt = saved.getCreatedAt();
-        ChatDtos.SimpleUser s = new ChatDtos.SimpleUser();
-        s.username = saved.getSender().getUsername();
-        ChatDtos.SimpleUser r = new ChatDtos.SimpleUser();
-        r.username = saved.getRecipient().getUsername();
-        dto.sender = s;
-        dto.recipient = r;
-        return dto;
+        UserReferenceCache.UserRef other = userReferenceCache.requireByUsername(toUsername);
+        return chatService.sendMessage(currentUserId(principal), other.id(), content, body.get("clientMessageId"));
     }
 
     @PostMapping("/conversations/{username}/mark-read")
-    public ResponseEntity<Void> markRead(@PathVariable("username") String otherUsername, Principal principal) {
-        AuthUser me = authUserRepository.findByUsername(principal.getName()).orElseThrow();
-        AuthUser other = authUserRepository.findByUsername(otherUsername).orElseThrow();
-        Long conversationId = chatService.getOrCreateConversation(me.getId(), other.getId()).getId();
-        chatService.markConversationRead(conversationId, me.getId());
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<Map<String, Integer>> markRead(@PathVariable("username") String otherUsername, Principal principal) {
+        UserReferenceCache.UserRef me = new UserReferenceCache.UserRef(currentUserId(principal), principal.getName());
+        UserReferenceCache.UserRef other = userReferenceCache.requireByUsername(otherUsername);
+        int updated = chatService.markConversationRead(chatService.resolveConversationId(me.id(), other.id()), me, other);
+        return ResponseEntity.ok(Map.of("updated", updated));
+    }
+
+    @GetMapping("/unread-count")
+    public Map<String, Long> getUnreadCount(Principal principal) {
+        return Map.of("total", chatService.totalUnread(currentUserId(principal)));
     }
 
     @GetMapping("/users/search")
+    @RateLimited(key = "chat-user-search", capacity = 30, per = "1m")
     public List<Map<String, String>> searchUsers(@RequestParam("q") String query, Principal principal) {
         if (query == null || query.trim().isEmpty()) return List.of();
         String q = query.toLowerCase();
@@ -106,15 +136,18 @@ public class ChatRestController {
 
     @PostMapping("/conversations/{username}/ensure")
     public ChatDtos.ChatConversationDto ensureConversation(@PathVariable("username") String otherUsername, Principal principal) {
-        AuthUser me = authUserRepository.findByUsername(principal.getName()).orElseThrow();
-        AuthUser other = authUserRepository.findByUsername(otherUsername).orElseThrow();
-        var conv = chatService.getOrCreateConversation(me.getId(), other.getId());
+        UserReferenceCache.UserRef other = userReferenceCache.requireByUsername(otherUsername);
+        var conv = chatService.getOrCreateConversation(currentUserId(principal), other.id());
         ChatDtos.ChatConversationDto dto = new ChatDtos.ChatConversationDto();
         dto.id = conv.getId();
-        dto.otherUsername = other.getUsername();
+        dto.otherUsername = other.username();
         dto.updatedAt = conv.getUpdatedAt();
         return dto;
     }
-}
-
 
+    // The access token carries the caller's id; only tokens without the claim need a lookup
+    private Long currentUserId(Principal principal) {
+        Long id = JwtUserPrincipal.userIdOf(principal);
+        return id != null ? id : userReferenceCache.requireByUsername(principal.getName()).id();
+    }
+}
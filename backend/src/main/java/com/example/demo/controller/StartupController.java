@@ -1,7 +1,11 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.StartupView;
 import com.example.demo.entity.Startup;
 import com.example.demo.entity.StartupMember;
+import com.example.demo.repository.StartupRepositoryCustom;
+import com.example.demo.security.JwtUserPrincipal;
+import com.example.demo.security.RateLimited;
 import com.example.demo.service.StartupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -27,26 +31,26 @@ public class StartupController {
     private StartupService startupService;
 
     @GetMapping
+    @RateLimited(key = "startups-list", capacity = 120, per = "1m")
     public ResponseEntity<Page<Startup>> getAllStartups(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String stage,
+            @RequestParam(required = false) String industry,
+            @RequestParam(required = false) Boolean hiring,
+            @RequestParam(required = false) Boolean fundraising) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Startup> startups;
-        
-        if (search != null && !search.isEmpty()) {
-            startups = startupService.searchStartups(search, pageable);
-        } else {
-            startups = startupService.getAllStartups(pageable);
-        }
+        Page<Startup> startups = startupService.searchStartups(
+                new StartupRepositoryCustom.Criteria(search, stage, industry, hiring, fundraising), pageable);
         
         return ResponseEntity.ok(startups);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Startup> getStartupById(@PathVariable Long id) {
-        Optional<Startup> startup = startupService.getStartupById(id);
+    public ResponseEntity<StartupView> getStartupById(@PathVariable Long id) {
+        Optional<StartupView> startup = startupService.getStartupById(id);
         return startup.map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -63,24 +67,23 @@ public class StartupController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        // Extract user ID from authentication
-        Map<String, Object> claims = (Map<String, Object>) authentication.getCredentials();
-        Long userId = ((Number) claims.get("userId")).longValue();
+        // User ID comes from the access token's userId claim
+        Long userId = JwtUserPrincipal.userIdOf(authentication);
         
         List<Startup> startups = startupService.getUserStartups(userId);
         return ResponseEntity.ok(startups);
     }
 
     @PostMapping
+    @RateLimited(key = "startup-create", capacity = 10, per = "1h")
     public ResponseEntity<?> createStartup(@RequestBody Startup startup, Authentication authentication) {
         if (authentication == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
         try {
-            // Extract user ID from authentication
-            Map<String, Object> claims = (Map<String, Object>) authentication.getCredentials();
-            Long userId = ((Number) claims.get("userId")).longValue();
+            // User ID comes from the access token's userId claim
+            Long userId = JwtUserPrincipal.userIdOf(authentication);
             
             Startup savedStartup = startupService.createStartup(startup, userId);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedStartup);
@@ -1,10 +1,16 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.ProfileFacetCounts;
+import com.example.demo.dto.ProfileView;
 import com.example.demo.entity.UserProfile;
 import com.example.demo.entity.FounderProfile;
 import com.example.demo.entity.AuthUser;
+import com.example.demo.security.RateLimited;
 import com.example.demo.service.UserProfileService;
+import com.example.demo.service.UserReferenceCache;
 import com.example.demo.repository.AuthUserRepository;
+import com.example.demo.repository.ProfileFacet;
+import com.example.demo.repository.ProfileFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -30,48 +36,74 @@ public class UserProfileController {
     @Autowired
     private AuthUserRepository authUserRepository;
 
+    @Autowired
+    private UserReferenceCache userReferenceCache;
+
     @GetMapping
+    @RateLimited(key = "members-list", capacity = 120, per = "1m")
     public ResponseEntity<?> getAllProfiles(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "25") int size,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) List<String> goals,
             @RequestParam(required = false) List<String> skills,
-            @RequestParam(required = false) List<String> interests) {
+            @RequestParam(required = false) List<String> interests,
+            // any (default): at least one of the given tags; all: every one of them
+            @RequestParam(required = false) String goalsMatch,
+            @RequestParam(required = false) String skillsMatch,
+            @RequestParam(required = false) String interestsMatch) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<UserProfile> profiles;
-        
-        if ((search != null && !search.isEmpty()) || goals != null || skills != null || interests != null) {
-            profiles = userProfileService.searchWithFilters(search, goals, skills, interests, pageable);
-        } else {
-            profiles = userProfileService.getAllProfiles(pageable);
-        }
+        ProfileFilter filter = filterOf(search, goals, skills, interests, goalsMatch, skillsMatch, interestsMatch);
+        Page<UserProfile> profiles = userProfileService.searchWithFilters(filter, pageable);
         
         // Return as list for backward compatibility
         return ResponseEntity.ok(profiles.getContent());
     }
 
+    /** Counts per goal/skill/interest value over the profiles the same filters would list. */
+    @GetMapping("/facets")
+    @RateLimited(key = "members-facets", capacity = 120, per = "1m")
+    public ResponseEntity<ProfileFacetCounts> getFacets(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) List<String> goals,
+            @RequestParam(required = false) List<String> skills,
+            @RequestParam(required = false) List<String> interests,
+            @RequestParam(required = false) String goalsMatch,
+            @RequestParam(required = false) String skillsMatch,
+            @RequestParam(required = false) String interestsMatch,
+            @RequestParam(defaultValue = "20") int limit) {
+        ProfileFilter filter = filterOf(search, goals, skills, interests, goalsMatch, skillsMatch, interestsMatch);
+        return ResponseEntity.ok(userProfileService.getFacetCounts(filter, Math.max(1, Math.min(limit, 100))));
+    }
+
+    private static ProfileFilter filterOf(String search, List<String> goals, List<String> skills, List<String> interests,
+                                          String goalsMatch, String skillsMatch, String interestsMatch) {
+        return ProfileFilter.builder()
+                .query(search)
+                .tags(ProfileFacet.GOALS, goals, ProfileFilter.Match.of(goalsMatch))
+                .tags(ProfileFacet.SKILLS, skills, ProfileFilter.Match.of(skillsMatch))
+                .tags(ProfileFacet.INTERESTS, interests, ProfileFilter.Match.of(interestsMatch))
+                .build();
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<UserProfile> getProfileById(@PathVariable Long id) {
-        Optional<UserProfile> profile = userProfileService.getProfileById(id);
+    public ResponseEntity<ProfileView> getProfileById(@PathVariable Long id) {
+        Optional<ProfileView> profile = userProfileService.getProfileById(id);
         return profile.map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{id}/username")
     public ResponseEntity<Map<String, String>> getUsernameForProfile(@PathVariable Long id) {
-        Optional<UserProfile> profileOpt = userProfileService.getProfileById(id);
-        if (profileOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-        UserProfile profile = profileOpt.get();
-        AuthUser user = profile.getUser();
-        if (user == null) {
+        Optional<UserReferenceCache.UserRef> user = userProfileService.getProfileById(id)
+                .map(ProfileView::userId)
+                .flatMap(userReferenceCache::findById);
+        if (user.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
         Map<String, String> body = new HashMap<>();
-        body.put("username", user.getUsername());
+        body.put("username", user.get().username());
         return ResponseEntity.ok(body);
     }
     
@@ -89,13 +121,14 @@ public class UserProfileController {
     }
 
     @PutMapping("/{id}")
+    @RateLimited(key = "profile-update", capacity = 30, per = "1m")
     public ResponseEntity<?> updateProfile(
             @PathVariable Long id, 
             @RequestBody Map<String, Object> updates,
             Authentication authentication) {
         try {
-            // Get the profile
-            Optional<UserProfile> profileOpt = userProfileService.getProfileById(id);
+            // Get the profile (uncached: it is modified below)
+            Optional<UserProfile> profileOpt = userProfileService.getProfileForUpdate(id);
             if (!profileOpt.isPresent()) {
                 return ResponseEntity.notFound().build();
             }
@@ -186,6 +219,7 @@ public class UserProfileController {
     }
 
     @GetMapping("/search")
+    @RateLimited(key = "members-search", capacity = 60, per = "1m")
     public ResponseEntity<Page<UserProfile>> searchProfiles(
             @RequestParam(required = false) String query,
             @RequestParam(defaultValue = "0") int page,
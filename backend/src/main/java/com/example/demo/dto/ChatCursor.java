@@ -0,0 +1,44 @@
+package com.example.demo.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for chat listings: a (timestamp, id) pair encoded as URL-safe base64.
+ * Clients pass it back untouched to fetch the next page.
+ */
+public final class ChatCursor {
+    private final LocalDateTime at;
+    private final Long id;
+
+    public ChatCursor(LocalDateTime at, Long id) {
+        this.at = at;
+        this.id = id;
+    }
+
+    public LocalDateTime getAt() { return at; }
+    public Long getId() { return id; }
+
+    public String encode() {
+        String raw = at + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded cursor, or null when no cursor was supplied
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static ChatCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0) throw new IllegalArgumentException("Invalid cursor");
+            return new ChatCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
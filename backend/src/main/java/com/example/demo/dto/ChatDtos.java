@@ -1,5 +1,7 @@
 package com.example.demo.dto;
 
+import com.example.demo.entity.ChatMessage;
+
 import java.time.LocalDateTime;
 
 public class ChatDtos {
@@ -21,10 +23,36 @@ public class ChatDtos {
 
     public static class ChatMessageDto {
         public Long id;
+        public String clientMessageId;
         public String content;
         public LocalDateTime createdAt;
         public SimpleUser sender;
         public SimpleUser recipient;
+
+        public static ChatMessageDto from(ChatMessage m) {
+            return of(m, m.getSender().getUsername(), m.getRecipient().getUsername());
+        }
+
+        // For messages whose sender/recipient are unloaded references
+        public static ChatMessageDto of(ChatMessage m, String senderUsername, String recipientUsername) {
+            ChatMessageDto dto = new ChatMessageDto();
+            dto.id = m.getId();
+            dto.clientMessageId = m.getClientMessageId();
+            dto.content = m.getContent();
+            dto.createdAt = m.getCreatedAt();
+            dto.sender = new SimpleUser();
+            dto.sender.username = senderUsername;
+            dto.recipient = new SimpleUser();
+            dto.recipient.username = recipientUsername;
+            return dto;
+        }
+    }
+
+    public static class ReadReceiptDto {
+        public Long conversationId;
+        public String readerUsername;
+        public LocalDateTime readAt;
+        public Integer count;
     }
 
     public static class SimpleUser {
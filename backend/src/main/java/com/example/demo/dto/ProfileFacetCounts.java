@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Facet counts for the members directory: how many matching profiles carry each tag value,
+ * most common first, per facet key (goals, skills, interests).
+ */
+public record ProfileFacetCounts(long total, Map<String, List<ValueCount>> facets) {
+
+    public record ValueCount(String value, long count) {}
+}
@@ -0,0 +1,69 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.UserProfile;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a UserProfile for the "profiles" cache, serialized with the same JSON
+ * properties as the entity. Holds the owner's id instead of the lazy user association, so it is
+ * safe to share between requests after the session that loaded it has closed.
+ */
+public record ProfileView(Long id,
+                          @JsonIgnore Long userId,
+                          String name,
+                          String location,
+                          String avatar,
+                          Integer followers,
+                          Double rating,
+                          String tagline,
+                          List<String> goals,
+                          List<String> interests,
+                          List<String> skills,
+                          Asset assets,
+                          String status,
+                          About about,
+                          LocalDateTime createdAt,
+                          LocalDateTime updatedAt,
+                          boolean isFounder,
+                          boolean isInvestor) {
+
+    public record Asset(String type, String label) {}
+
+    public record About(String shortDescription, List<String> industries, String lookingFor,
+                        String offering, List<String> languages) {}
+
+    /** Copies everything the JSON needs; call while the entity's session is still open. */
+    public static ProfileView of(UserProfile p) {
+        UserProfile.Asset asset = p.getAssets();
+        UserProfile.About about = p.getAbout();
+        return new ProfileView(
+                p.getId(),
+                p.getUser() == null ? null : p.getUser().getId(),
+                p.getName(),
+                p.getLocation(),
+                p.getAvatar(),
+                p.getFollowers(),
+                p.getRating(),
+                p.getTagline(),
+                copy(p.getGoals()),
+                copy(p.getInterests()),
+                copy(p.getSkills()),
+                asset == null ? null : new Asset(asset.getType(), asset.getLabel()),
+                p.getStatus(),
+                about == null ? null : new About(about.getShortDescription(), copy(about.getIndustries()),
+                        about.getLookingFor(), about.getOffering(), copy(about.getLanguages())),
+                p.getCreatedAt(),
+                p.getUpdatedAt(),
+                p.getIsFounder(),
+                p.getIsInvestor());
+    }
+
+    static List<String> copy(List<String> values) {
+        return values == null ? null : Collections.unmodifiableList(new ArrayList<>(values));
+    }
+}
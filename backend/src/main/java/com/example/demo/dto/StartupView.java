@@ -0,0 +1,56 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.Startup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a Startup for the "startups" cache, serialized with the same JSON
+ * properties as the entity but without the lazy members association.
+ */
+public record StartupView(Long id,
+                          String name,
+                          String tagline,
+                          String description,
+                          String logoUrl,
+                          String website,
+                          LocalDate foundedDate,
+                          String stage,
+                          String industry,
+                          Integer teamSize,
+                          String location,
+                          Boolean isHiring,
+                          Boolean isFundraising,
+                          BigDecimal fundingAmount,
+                          String revenueRange,
+                          String productStatus,
+                          List<String> achievements,
+                          LocalDateTime createdAt,
+                          LocalDateTime updatedAt) {
+
+    public static StartupView of(Startup s) {
+        return new StartupView(
+                s.getId(),
+                s.getName(),
+                s.getTagline(),
+                s.getDescription(),
+                s.getLogoUrl(),
+                s.getWebsite(),
+                s.getFoundedDate(),
+                s.getStage(),
+                s.getIndustry(),
+                s.getTeamSize(),
+                s.getLocation(),
+                s.getIsHiring(),
+                s.getIsFundraising(),
+                s.getFundingAmount(),
+                s.getRevenueRange(),
+                s.getProductStatus(),
+                ProfileView.copy(s.getAchievements()),
+                s.getCreatedAt(),
+                s.getUpdatedAt());
+    }
+}
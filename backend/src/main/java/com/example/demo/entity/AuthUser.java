@@ -46,6 +46,10 @@ public class AuthUser {
     @Column(name = "last_login")
     private LocalDateTime lastLogin;
 
+    // Access tokens issued under an older generation are rejected
+    @Column(name = "token_generation", nullable = false)
+    private Integer tokenGeneration = 0;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -128,6 +132,9 @@ public class AuthUser {
     public String getGoogleId() { return googleId; }
     public void setGoogleId(String googleId) { this.googleId = googleId; }
 
+    public Integer getTokenGeneration() { return tokenGeneration; }
+    public void setTokenGeneration(Integer tokenGeneration) { this.tokenGeneration = tokenGeneration; }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -31,6 +31,9 @@ public class ChatMessage {
     @Column(name = "read_at")
     private LocalDateTime readAt;
 
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -51,6 +54,9 @@ public class ChatMessage {
 
     public LocalDateTime getReadAt() { return readAt; }
     public void setReadAt(LocalDateTime readAt) { this.readAt = readAt; }
+
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
 }
 
 
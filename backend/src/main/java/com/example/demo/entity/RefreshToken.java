@@ -20,9 +20,17 @@ public class RefreshToken {
     @Column(name = "replaced_by_token_id")
     private String replacedByTokenId;
 
+    // token_id of the first token of the login this token descends from
+    @Column(name = "family_id", nullable = false, length = 64)
+    private String familyId;
+
     @Column(nullable = false)
     private boolean revoked = false;
 
+    // Set when the token is exchanged for replaced_by_token_id
+    @Column(name = "rotated_at")
+    private LocalDateTime rotatedAt;
+
     private String ipAddress;
     private String userAgent;
 
@@ -39,8 +47,12 @@ public class RefreshToken {
     public void setTokenId(String tokenId) { this.tokenId = tokenId; }
     public String getReplacedByTokenId() { return replacedByTokenId; }
     public void setReplacedByTokenId(String replacedByTokenId) { this.replacedByTokenId = replacedByTokenId; }
+    public String getFamilyId() { return familyId; }
+    public void setFamilyId(String familyId) { this.familyId = familyId; }
     public boolean isRevoked() { return revoked; }
     public void setRevoked(boolean revoked) { this.revoked = revoked; }
+    public LocalDateTime getRotatedAt() { return rotatedAt; }
+    public void setRotatedAt(LocalDateTime rotatedAt) { this.rotatedAt = rotatedAt; }
     public String getIpAddress() { return ipAddress; }
     public void setIpAddress(String ipAddress) { this.ipAddress = ipAddress; }
     public String getUserAgent() { return userAgent; }
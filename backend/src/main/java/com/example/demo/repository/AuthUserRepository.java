@@ -2,9 +2,12 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.AuthUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -14,6 +17,24 @@ public interface AuthUserRepository extends JpaRepository<AuthUser, Long> {
     Optional<AuthUser> findByGoogleId(String googleId);
     Boolean existsByUsername(String username);
     Boolean existsByEmail(String email);
+
+    interface TokenStatus {
+        Boolean getEnabled();
+        Integer getTokenGeneration();
+    }
+
+    @Query("SELECT u.enabled AS enabled, u.tokenGeneration AS tokenGeneration FROM AuthUser u WHERE u.id = :id")
+    Optional<TokenStatus> findTokenStatusById(Long id);
+
+    // Targeted update so a concurrent rehash-on-login of the password is not overwritten
+    @Transactional
+    @Modifying
+    @Query("UPDATE AuthUser u SET u.lastLogin = :at WHERE u.id = :id")
+    int updateLastLogin(Long id, LocalDateTime at);
+
+    @Modifying
+    @Query("UPDATE AuthUser u SET u.tokenGeneration = u.tokenGeneration + 1 WHERE u.id = :id")
+    int incrementTokenGeneration(Long id);
     
     @Query("SELECT u FROM AuthUser u LEFT JOIN FETCH u.userProfile WHERE u.id = :id")
     Optional<AuthUser> findByIdWithProfile(Long id);
@@ -2,18 +2,58 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.ChatConversation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 public interface ChatConversationRepository extends JpaRepository<ChatConversation, Long> {
-    @Query("SELECT c FROM ChatConversation c WHERE (c.user1.id = :u1 AND c.user2.id = :u2) OR (c.user1.id = :u2 AND c.user2.id = :u1)")
-    Optional<ChatConversation> findBetweenUsers(@Param("u1") Long user1Id, @Param("u2") Long user2Id);
+    // Pairs are stored canonically (user1_id <= user2_id): a single probe of uq_chat_conversations_pair
+    @Query("SELECT c.id FROM ChatConversation c WHERE c.user1.id = :lowId AND c.user2.id = :highId")
+    Optional<Long> findIdByParticipants(@Param("lowId") Long lowId, @Param("highId") Long highId);
+
+    @Modifying
+    @Query("UPDATE ChatConversation c SET c.updatedAt = :at WHERE c.id = :id AND c.updatedAt < :at")
+    int touch(@Param("id") Long id, @Param("at") LocalDateTime at);
 
     @Query("SELECT c FROM ChatConversation c WHERE c.user1.id = :userId OR c.user2.id = :userId ORDER BY c.updatedAt DESC")
     List<ChatConversation> findAllForUser(@Param("userId") Long userId);
-}
 
+    /**
+     * One row per inbox entry: the counterpart and the latest message, resolved with a
+     * LATERAL subquery so the whole inbox page is a single round trip. Unread counts come
+     * from UnreadCounterService.
+     */
+    interface InboxRow {
+        Long getConversationId();
+        Long getOtherUserId();
+        String getOtherUsername();
+        LocalDateTime getUpdatedAt();
+        String getLastMessage();
+        LocalDateTime getLastMessageAt();
+    }
+
+    String INBOX_SELECT =
+            "SELECT c.id AS \"conversationId\", ou.id AS \"otherUserId\", ou.username AS \"otherUsername\", " +
+            "       c.updated_at AS \"updatedAt\", lm.snippet AS \"lastMessage\", lm.created_at AS \"lastMessageAt\" " +
+            "FROM chat_conversations c " +
+            "JOIN users ou ON ou.id = CASE WHEN c.user1_id = :userId THEN c.user2_id ELSE c.user1_id END " +
+            "LEFT JOIN LATERAL (SELECT LEFT(m.content, 200) AS snippet, m.created_at FROM chat_messages m " +
+            "                   WHERE m.conversation_id = c.id ORDER BY m.created_at DESC, m.id DESC LIMIT 1) lm ON true " +
+            "WHERE (c.user1_id = :userId OR c.user2_id = :userId) ";
 
+    @Query(value = INBOX_SELECT +
+            "ORDER BY c.updated_at DESC, c.id DESC LIMIT :limit", nativeQuery = true)
+    List<InboxRow> findInbox(@Param("userId") Long userId, @Param("limit") int limit);
+
+    @Query(value = INBOX_SELECT +
+            "AND (c.updated_at, c.id) < (:beforeAt, :beforeId) " +
+            "ORDER BY c.updated_at DESC, c.id DESC LIMIT :limit", nativeQuery = true)
+    List<InboxRow> findInboxBefore(@Param("userId") Long userId,
+                                   @Param("beforeAt") LocalDateTime beforeAt,
+                                   @Param("beforeId") Long beforeId,
+                                   @Param("limit") int limit);
+}
@@ -1,21 +1,43 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
-    @Query("SELECT m FROM ChatMessage m WHERE m.conversation.id = :conversationId ORDER BY m.createdAt ASC")
-    List<ChatMessage> findByConversation(@Param("conversationId") Long conversationId);
-
-    @Query("SELECT m FROM ChatMessage m WHERE (m.sender.id = :u1 AND m.recipient.id = :u2) OR (m.sender.id = :u2 AND m.recipient.id = :u1) ORDER BY m.createdAt ASC")
-    List<ChatMessage> findBetweenUsers(@Param("u1") Long user1Id, @Param("u2") Long user2Id);
+    // Keyset pages over idx_chat_messages_conversation, newest first; id breaks createdAt ties
+    @Query("SELECT m FROM ChatMessage m JOIN FETCH m.sender JOIN FETCH m.recipient " +
+           "WHERE m.conversation.id = :conversationId ORDER BY m.createdAt DESC, m.id DESC")
+    List<ChatMessage> findLatestInConversation(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    @Query("SELECT m FROM ChatMessage m JOIN FETCH m.sender JOIN FETCH m.recipient " +
+           "WHERE m.conversation.id = :conversationId " +
+           "AND (m.createdAt < :beforeAt OR (m.createdAt = :beforeAt AND m.id < :beforeId)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<ChatMessage> findInConversationBefore(@Param("conversationId") Long conversationId,
+                                               @Param("beforeAt") LocalDateTime beforeAt,
+                                               @Param("beforeId") Long beforeId,
+                                               Pageable pageable);
+
+    // Served by the partial idx_chat_messages_unread index; touches only rows that change
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ChatMessage m SET m.readAt = :readAt " +
+           "WHERE m.conversation.id = :conversationId AND m.recipient.id = :recipientId AND m.readAt IS NULL")
+    int markReadInConversation(@Param("conversationId") Long conversationId,
+                               @Param("recipientId") Long recipientId,
+                               @Param("readAt") LocalDateTime readAt);
 
     long countByConversation_IdAndRecipient_IdAndReadAtIsNull(Long conversationId, Long recipientId);
 
+    Optional<ChatMessage> findBySender_IdAndClientMessageId(Long senderId, String clientMessageId);
+
     ChatMessage findTopByConversation_IdOrderByCreatedAtDesc(Long conversationId);
 }
 
@@ -0,0 +1,29 @@
+package com.example.demo.repository;
+
+/** Tag facets of a member profile and the collection tables that hold them. */
+public enum ProfileFacet {
+    GOALS("user_profile_goals", "goal"),
+    SKILLS("user_profile_skills", "skill"),
+    INTERESTS("user_profile_interests", "interest");
+
+    private final String table;
+    private final String column;
+
+    ProfileFacet(String table, String column) {
+        this.table = table;
+        this.column = column;
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    /** Name used for this facet in request parameters and responses. */
+    public String key() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.repository;
+
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Members directory filter: optional free text plus, per facet, a set of tags matched with
+ * ANY (OR) or ALL (AND) semantics. Facets combine with AND.
+ */
+public record ProfileFilter(String query, Map<ProfileFacet, TagFilter> tags) {
+
+    public enum Match {
+        ANY, ALL;
+
+        /** Lenient parse of request parameters: "all" (any case) means ALL, anything else ANY. */
+        public static Match of(String value) {
+            return value != null && value.toUpperCase(Locale.ROOT).equals("ALL") ? ALL : ANY;
+        }
+    }
+
+    public record TagFilter(List<String> values, Match match) {
+        public TagFilter {
+            values = List.copyOf(new LinkedHashSet<>(values));
+        }
+    }
+
+    public ProfileFilter {
+        tags = tags == null ? Map.of() : Map.copyOf(tags);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean hasQuery() {
+        return query != null && !query.isBlank();
+    }
+
+    public boolean isEmpty() {
+        return !hasQuery() && tags.isEmpty();
+    }
+
+    public static final class Builder {
+        private String query;
+        private final Map<ProfileFacet, TagFilter> tags = new EnumMap<>(ProfileFacet.class);
+
+        public Builder query(String query) {
+            this.query = query;
+            return this;
+        }
+
+        /** Ignores null or empty tag lists. */
+        public Builder tags(ProfileFacet facet, List<String> values, Match match) {
+            if (values != null && !values.isEmpty()) {
+                tags.put(facet, new TagFilter(values, match));
+            }
+            return this;
+        }
+
+        public ProfileFilter build() {
+            return new ProfileFilter(query, tags);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.repository;
+
+import com.example.demo.service.TextSearchQuery;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Native SQL for a ProfileFilter. Each profile row is produced at most once, so no DISTINCT is
+ * needed and the count query gives the true total:
+ * - ANY tags: an EXISTS semi-join against the facet's collection table;
+ * - ALL tags: membership in the set of profile ids holding every tag (GROUP BY ... HAVING);
+ * - text: the search_vector full-text match, ranked by ts_rank.
+ *
+ * Parameters are named (:name) with list values expanded by the caller, which works for both
+ * Hibernate native queries and NamedParameterJdbcTemplate.
+ */
+public final class ProfileFilterQuery {
+    private final String where;
+    private final String order;
+    private final Map<String, Object> params;
+
+    private ProfileFilterQuery(String where, String order, Map<String, Object> params) {
+        this.where = where;
+        this.order = order;
+        this.params = params;
+    }
+
+    public static ProfileFilterQuery of(ProfileFilter filter) {
+        StringBuilder where = new StringBuilder(" WHERE TRUE");
+        Map<String, Object> params = new LinkedHashMap<>();
+        String order = " ORDER BY up.id";
+
+        String tsquery = filter.hasQuery() ? TextSearchQuery.prefix(filter.query()) : null;
+        if (tsquery != null) {
+            where.append(" AND up.search_vector @@ to_tsquery('simple', :tsq)");
+            params.put("tsq", tsquery);
+            order = " ORDER BY ts_rank(up.search_vector, to_tsquery('simple', :tsq)) DESC, up.id";
+        }
+        filter.tags().forEach((facet, tags) -> {
+            String values = facet.key();
+            String t = "t_" + facet.key();
+            if (tags.match() == ProfileFilter.Match.ANY) {
+                where.append(" AND EXISTS (SELECT 1 FROM ").append(facet.table()).append(' ').append(t)
+                     .append(" WHERE ").append(t).append(".user_profile_id = up.id AND ")
+                     .append(t).append('.').append(facet.column()).append(" IN (:").append(values).append("))");
+            } else {
+                where.append(" AND up.id IN (SELECT ").append(t).append(".user_profile_id FROM ").append(facet.table()).append(' ').append(t)
+                     .append(" WHERE ").append(t).append('.').append(facet.column()).append(" IN (:").append(values).append(')')
+                     .append(" GROUP BY ").append(t).append(".user_profile_id")
+                     .append(" HAVING COUNT(DISTINCT ").append(t).append('.').append(facet.column()).append(") = :").append(values).append("_n)");
+                params.put(values + "_n", tags.values().size());
+            }
+            params.put(values, tags.values());
+        });
+        return new ProfileFilterQuery(where.toString(), order, params);
+    }
+
+    /** Full profile rows, best match first. */
+    public String selectSql() {
+        return "SELECT up.* FROM user_profiles up" + where + order;
+    }
+
+    public String countSql() {
+        return "SELECT COUNT(*) FROM user_profiles up" + where;
+    }
+
+    /** Matching profile ids, for use as a subquery. */
+    public String idsSql() {
+        return "SELECT up.id FROM user_profiles up" + where;
+    }
+
+    public Map<String, Object> params() {
+        return params;
+    }
+}
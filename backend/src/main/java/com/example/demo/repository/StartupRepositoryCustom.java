@@ -0,0 +1,22 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.Startup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface StartupRepositoryCustom {
+
+    /** Null fields are not filtered on. */
+    record Criteria(String query, String stage, String industry, Boolean hiring, Boolean fundraising) {
+        public boolean isEmpty() {
+            return (query == null || query.isBlank()) && stage == null && industry == null
+                    && hiring == null && fundraising == null;
+        }
+    }
+
+    /**
+     * Text search combined with filters in one query. With a query, results are ranked by the best
+     * of name/tagline word similarity and description full-text rank; otherwise by id.
+     */
+    Page<Startup> search(Criteria criteria, Pageable pageable);
+}
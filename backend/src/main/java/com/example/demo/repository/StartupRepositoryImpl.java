@@ -0,0 +1,88 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.Startup;
+import com.example.demo.service.TextSearchQuery;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the startup search SQL from only the criteria that are set, so every predicate can use
+ * its index (trigram GIN on name/tagline, GIN on description_vector, btree/partial indexes on the
+ * filters) instead of a generic plan full of "param IS NULL OR ..." branches.
+ */
+class StartupRepositoryImpl implements StartupRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Startup> search(Criteria criteria, Pageable pageable) {
+        StringBuilder where = new StringBuilder(" WHERE TRUE");
+        Map<String, Object> params = new LinkedHashMap<>();
+        String rank = null;
+
+        String query = criteria.query() == null ? null : criteria.query().trim();
+        if (query != null && !query.isEmpty()) {
+            // "<%" is pg_trgm word similarity: tolerates typos and matches inside longer names;
+            // the prefix ILIKE catches one- and two-letter as-you-type input that trigrams miss
+            where.append(" AND (s.name ILIKE :prefix OR :q <% s.name OR :q <% s.tagline");
+            params.put("q", query);
+            params.put("prefix", escapeLike(query) + "%");
+            String tsquery = TextSearchQuery.prefix(query);
+            if (tsquery != null) {
+                where.append(" OR s.description_vector @@ to_tsquery('english', :tsq)");
+                params.put("tsq", tsquery);
+                rank = "GREATEST(word_similarity(:q, s.name), 0.8 * word_similarity(:q, coalesce(s.tagline, '')), " +
+                       "0.5 * ts_rank(s.description_vector, to_tsquery('english', :tsq)))";
+            } else {
+                rank = "GREATEST(word_similarity(:q, s.name), 0.8 * word_similarity(:q, coalesce(s.tagline, '')))";
+            }
+            where.append(")");
+        }
+        if (criteria.stage() != null) {
+            where.append(" AND s.stage = :stage");
+            params.put("stage", criteria.stage());
+        }
+        if (criteria.industry() != null) {
+            where.append(" AND s.industry = :industry");
+            params.put("industry", criteria.industry());
+        }
+        // Literal booleans so the planner can pick the partial indexes
+        if (criteria.hiring() != null) {
+            where.append(criteria.hiring() ? " AND s.is_hiring" : " AND s.is_hiring IS NOT TRUE");
+        }
+        if (criteria.fundraising() != null) {
+            where.append(criteria.fundraising() ? " AND s.is_fundraising" : " AND s.is_fundraising IS NOT TRUE");
+        }
+
+        String order = rank == null ? " ORDER BY s.id" : " ORDER BY " + rank + " DESC, s.id";
+        Query select = entityManager.createNativeQuery("SELECT s.* FROM startups s" + where + order, Startup.class);
+        Query count = entityManager.createNativeQuery("SELECT COUNT(*) FROM startups s" + where);
+        params.forEach((name, value) -> {
+            select.setParameter(name, value);
+            count.setParameter(name, value);
+        });
+        if (pageable.isPaged()) {
+            select.setFirstResult((int) pageable.getOffset());
+            select.setMaxResults(pageable.getPageSize());
+        }
+        @SuppressWarnings("unchecked")
+        List<Startup> content = select.getResultList();
+        // Skips the count when the page itself shows the total
+        return PageableExecutionUtils.getPage(content, pageable, () -> ((Number) count.getSingleResult()).longValue());
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
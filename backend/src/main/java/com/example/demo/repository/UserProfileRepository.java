@@ -8,11 +8,10 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserProfileRepository extends JpaRepository<UserProfile, Long> {
+public interface UserProfileRepository extends JpaRepository<UserProfile, Long>, UserProfileRepositoryCustom {
     
     Optional<UserProfile> findByUserId(Long userId);
     
@@ -22,41 +21,13 @@ public interface UserProfileRepository extends JpaRepository<UserProfile, Long>
     @Query("SELECT up FROM UserProfile up LEFT JOIN FETCH up.investorProfile WHERE up.id = :id")
     Optional<UserProfile> findByIdWithInvestorProfile(@Param("id") Long id);
     
-    // Search queries
-    @Query("SELECT up FROM UserProfile up WHERE " +
-           "LOWER(up.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(up.tagline) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(up.location) LIKE LOWER(CONCAT('%', :query, '%'))")
-    Page<UserProfile> searchProfiles(@Param("query") String query, Pageable pageable);
-    
-    // Filter by goals
-    @Query("SELECT DISTINCT up FROM UserProfile up JOIN up.goals g WHERE g IN :goals")
-    Page<UserProfile> findByGoalsIn(@Param("goals") List<String> goals, Pageable pageable);
-    
-    // Filter by skills
-    @Query("SELECT DISTINCT up FROM UserProfile up JOIN up.skills s WHERE s IN :skills")
-    Page<UserProfile> findBySkillsIn(@Param("skills") List<String> skills, Pageable pageable);
-    
-    // Filter by interests
-    @Query("SELECT DISTINCT up FROM UserProfile up JOIN up.interests i WHERE i IN :interests")
-    Page<UserProfile> findByInterestsIn(@Param("interests") List<String> interests, Pageable pageable);
-    
-    // Combined search with filters
-    @Query("SELECT DISTINCT up FROM UserProfile up " +
-           "LEFT JOIN up.goals g " +
-           "LEFT JOIN up.skills s " +
-           "LEFT JOIN up.interests i " +
-           "WHERE (:query IS NULL OR :query = '' OR " +
-           "       LOWER(up.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "       LOWER(up.tagline) LIKE LOWER(CONCAT('%', :query, '%'))) " +
-           "AND (:goals IS NULL OR g IN :goals) " +
-           "AND (:skills IS NULL OR s IN :skills) " +
-           "AND (:interests IS NULL OR i IN :interests)")
-    Page<UserProfile> searchWithFilters(@Param("query") String query,
-                                        @Param("goals") List<String> goals,
-                                        @Param("skills") List<String> skills,
-                                        @Param("interests") List<String> interests,
-                                        Pageable pageable);
+    // Full-text search over search_vector (GIN), best matches first; tsquery from TextSearchQuery
+    @Query(value = "SELECT up.* FROM user_profiles up, to_tsquery('simple', :tsquery) q " +
+                   "WHERE up.search_vector @@ q " +
+                   "ORDER BY ts_rank(up.search_vector, q) DESC, up.id",
+           countQuery = "SELECT COUNT(*) FROM user_profiles up WHERE up.search_vector @@ to_tsquery('simple', :tsquery)",
+           nativeQuery = true)
+    Page<UserProfile> searchProfiles(@Param("tsquery") String tsquery, Pageable pageable);
     
     // Get profiles with founder profiles looking for co-founders
     @Query("SELECT up FROM UserProfile up JOIN up.founderProfile fp WHERE fp.lookingForCofounder = true")
@@ -0,0 +1,15 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.ProfileFacetCounts;
+import com.example.demo.entity.UserProfile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface UserProfileRepositoryCustom {
+
+    /** Members directory search; see ProfileFilterQuery for the SQL shape. */
+    Page<UserProfile> searchWithFilters(ProfileFilter filter, Pageable pageable);
+
+    /** Per-facet tag counts over the profiles matching filter, top {@code limit} values per facet. */
+    ProfileFacetCounts facetCounts(ProfileFilter filter, int limit);
+}
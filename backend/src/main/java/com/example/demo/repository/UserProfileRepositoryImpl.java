@@ -0,0 +1,83 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.ProfileFacetCounts;
+import com.example.demo.entity.UserProfile;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class UserProfileRepositoryImpl implements UserProfileRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    UserProfileRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<UserProfile> searchWithFilters(ProfileFilter filter, Pageable pageable) {
+        ProfileFilterQuery sql = ProfileFilterQuery.of(filter);
+        Query select = entityManager.createNativeQuery(sql.selectSql(), UserProfile.class);
+        Query count = entityManager.createNativeQuery(sql.countSql());
+        sql.params().forEach((name, value) -> {
+            select.setParameter(name, value);
+            count.setParameter(name, value);
+        });
+        if (pageable.isPaged()) {
+            select.setFirstResult((int) pageable.getOffset());
+            select.setMaxResults(pageable.getPageSize());
+        }
+        @SuppressWarnings("unchecked")
+        List<UserProfile> content = select.getResultList();
+        return PageableExecutionUtils.getPage(content, pageable, () -> ((Number) count.getSingleResult()).longValue());
+    }
+
+    /**
+     * One statement: the matching ids are materialized once, then each facet's collection table
+     * is joined to them and grouped. A profile listing a tag twice is still counted once.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ProfileFacetCounts facetCounts(ProfileFilter filter, int limit) {
+        ProfileFilterQuery matched = ProfileFilterQuery.of(filter);
+        StringBuilder sql = new StringBuilder("WITH matched AS MATERIALIZED (").append(matched.idsSql()).append(") ")
+                .append("SELECT 'total' AS facet, NULL AS value, COUNT(*) AS n FROM matched");
+        for (ProfileFacet facet : ProfileFacet.values()) {
+            String column = "t." + facet.column();
+            sql.append(" UNION ALL (SELECT '").append(facet.key()).append("', ").append(column)
+               .append(", COUNT(DISTINCT t.user_profile_id) FROM ").append(facet.table())
+               .append(" t JOIN matched m ON m.id = t.user_profile_id WHERE ").append(column).append(" IS NOT NULL")
+               .append(" GROUP BY ").append(column).append(" ORDER BY 3 DESC, 2 LIMIT :facetLimit)");
+        }
+        Map<String, Object> params = new HashMap<>(matched.params());
+        params.put("facetLimit", limit);
+
+        long[] total = {0};
+        Map<String, List<ProfileFacetCounts.ValueCount>> facets = new LinkedHashMap<>();
+        for (ProfileFacet facet : ProfileFacet.values()) facets.put(facet.key(), new ArrayList<>());
+        jdbcTemplate.query(sql.toString(), params, rs -> {
+            String facet = rs.getString("facet");
+            if ("total".equals(facet)) {
+                total[0] = rs.getLong("n");
+            } else {
+                facets.get(facet).add(new ProfileFacetCounts.ValueCount(rs.getString("value"), rs.getLong("n")));
+            }
+        });
+        return new ProfileFacetCounts(total[0], facets);
+    }
+}
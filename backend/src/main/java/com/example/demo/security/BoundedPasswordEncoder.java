@@ -0,0 +1,94 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs password hashing and verification on a small dedicated pool instead of the calling
+ * request thread, so a login burst can occupy at most {@code threads} cores on BCrypt/Argon2.
+ * Work beyond the bounded queue is shed immediately with 503 rather than piling up behind
+ * Tomcat's request threads.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        AtomicInteger sequence = new AtomicInteger();
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, r -> {
+            Thread t = new Thread(r, "password-hash-" + sequence.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("auth.password.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        this.rejected = meterRegistry.counter("auth.password.rejected");
+        this.encodeTimer = meterRegistry.timer("auth.password.latency", "op", "encode");
+        this.matchesTimer = meterRegistry.timer("auth.password.latency", "op", "matches");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    // Only inspects the hash prefix/cost, cheap enough for the caller's thread
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Callable<T> task, Timer timer) {
+        long started = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server busy, retry shortly");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
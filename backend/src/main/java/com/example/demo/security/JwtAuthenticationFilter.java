@@ -1,20 +1,32 @@
 package com.example.demo.security;
 
+import com.example.demo.service.JwtTokenService;
+import com.example.demo.service.UserReferenceCache;
+import com.example.demo.service.UserStatusCache;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
+/**
+ * Authenticates Bearer access tokens. The token is parsed and verified once; tokens carrying
+ * userId and role claims are trusted for identity and authorities, with only a cached
+ * enabled/token-generation check per user. Older tokens without those claims still go through UserDetailsService.
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
@@ -24,31 +36,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserReferenceCache userReferenceCache;
+
+    @Autowired
+    private UserStatusCache userStatusCache;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
-
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            Claims claims = null;
             try {
-                username = jwtUtil.extractUsername(jwt);
+                claims = jwtUtil.parseVerifiedClaims(authorizationHeader.substring(7));
             } catch (Exception e) {
-                // Invalid JWT token
-                logger.error("JWT token extraction failed: " + e.getMessage());
+                // Invalid or expired JWT token
+                logger.debug("JWT token rejected: " + e.getMessage());
             }
-        }
-
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-
-            if (jwtUtil.validateToken(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authenticationToken =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            UsernamePasswordAuthenticationToken authenticationToken = claims != null ? authenticate(claims) : null;
+            if (authenticationToken != null) {
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);
             }
@@ -56,4 +66,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private UsernamePasswordAuthenticationToken authenticate(Claims claims) {
+        String username = claims.getSubject();
+        Long userId = claims.get("userId", Long.class);
+        String role = claims.get("role", String.class);
+        JwtUserPrincipal principal;
+        if (userId != null && role != null) {
+            Integer generation = claims.get(JwtTokenService.GENERATION_CLAIM, Integer.class);
+            if (!userStatusCache.accepts(userId, generation != null ? generation : 0)) return null;
+            principal = new JwtUserPrincipal(userId, username, List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+        } else {
+            UserDetails userDetails;
+            try {
+                userDetails = userDetailsService.loadUserByUsername(username);
+            } catch (UsernameNotFoundException e) {
+                return null;
+            }
+            if (!userDetails.isEnabled()) return null;
+            // Tokens issued before the userId claim existed fall back to the cached username lookup
+            Long resolvedId = userId != null ? userId
+                    : userReferenceCache.findByUsername(username).map(UserReferenceCache.UserRef::id).orElse(null);
+            principal = new JwtUserPrincipal(resolvedId, username, userDetails.getAuthorities());
+        }
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.security.Principal;
+import java.util.Collection;
+
+/**
+ * Authenticated principal built from a verified access token. Carries the token's userId claim
+ * so request handlers can use the caller's id without looking the user up by username.
+ */
+public class JwtUserPrincipal extends User {
+
+    private final Long userId;
+
+    public JwtUserPrincipal(Long userId, String username, Collection<? extends GrantedAuthority> authorities) {
+        super(username, "", authorities);
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * Returns the user id carried by an authenticated principal, or null when the principal
+     * did not come from a token with a userId claim.
+     */
+    public static Long userIdOf(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof JwtUserPrincipal user) {
+            return user.getUserId();
+        }
+        return null;
+    }
+}
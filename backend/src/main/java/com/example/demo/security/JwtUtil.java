@@ -1,44 +1,95 @@
 package com.example.demo.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies access tokens. Keys and the parser are built once and are immutable, so
+ * verification does no per-call setup.
+ *
+ * Tokens are signed with the current key and carry its id in the "kid" header. Keys listed in
+ * spring.security.jwt.previous-keys ("kid:secret,kid:secret") are accepted for verification
+ * only, which lets the signing key be rotated without logging everyone out. Tokens without a
+ * kid predate rotation support and are checked against the current key.
+ */
 @Component
 public class JwtUtil {
 
-    @Value("${spring.security.jwt.secret:ThisIsATemporarySecretKeyForDevelopmentOnlyChangeThisInProduction123456789}")
-    private String secret;
-
-    @Value("${spring.security.jwt.expiration:900000}") // 15 minutes in milliseconds
-    private Long expiration;
-    
-    @Value("${spring.security.jwt.refresh-secret:AnotherTemporarySecretKeyForRefreshTokensChangeThisInProduction123456789}")
-    private String refreshSecret;
-    
-    @Value("${spring.security.jwt.refresh-expiration:2592000000}") // 30 days in milliseconds
-    private Long refreshExpiration;
-
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private final String currentKeyId;
+    private final SecretKey signingKey;
+    private final Map<String, SecretKey> verificationKeys;
+    private final JwtParser parser;
+    private final long expiration;
+
+    public JwtUtil(@Value("${spring.security.jwt.secret:ThisIsATemporarySecretKeyForDevelopmentOnlyChangeThisInProduction123456789}") String secret,
+                   @Value("${spring.security.jwt.expiration:900000}") long expiration, // 15 minutes in milliseconds
+                   @Value("${spring.security.jwt.key-id:k1}") String keyId,
+                   @Value("${spring.security.jwt.previous-keys:}") String previousKeys) {
+        this.currentKeyId = keyId;
+        this.signingKey = hmacKey(secret);
+        this.expiration = expiration;
+
+        Map<String, SecretKey> keys = new LinkedHashMap<>();
+        keys.put(keyId, signingKey);
+        for (String entry : previousKeys.split(",")) {
+            if (entry.isBlank()) continue;
+            int sep = entry.indexOf(':');
+            if (sep <= 0) {
+                throw new IllegalArgumentException("spring.security.jwt.previous-keys entries must be kid:secret");
+            }
+            keys.putIfAbsent(entry.substring(0, sep).trim(), hmacKey(entry.substring(sep + 1).trim()));
+        }
+        this.verificationKeys = Map.copyOf(keys);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveKey(header.getKeyId());
+                    }
+                })
+                .build();
+    }
+
+    private static SecretKey hmacKey(String secret) {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private SecretKey resolveKey(String keyId) {
+        if (keyId == null) return signingKey;
+        SecretKey key = verificationKeys.get(keyId);
+        if (key == null) {
+            throw new SignatureException("Unknown signing key id: " + keyId);
+        }
+        return key;
     }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
+    /** The userId claim of access tokens, or null for tokens issued without one. */
+    public Long extractUserId(String token) {
+        return extractClaim(token, claims -> claims.get("userId", Long.class));
+    }
+
     public Date extractExpiration(String token) {
         return extractClaim(token, Claims::getExpiration);
     }
@@ -48,16 +99,17 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verifies signature and expiry and returns the claims in a single parse.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, forged or expired
+     */
+    public Claims parseVerifiedClaims(String token) {
+        return extractAllClaims(token);
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Claims extractAllClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -71,29 +123,32 @@ public class JwtUtil {
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, currentKeyId)
                 .setClaims(claims)
                 .setSubject(subject)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    // Parsing rejects expired tokens, so a successful parse is a valid token
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        try {
+            return extractUsername(token).equals(userDetails.getUsername());
+        } catch (Exception e) {
+            return false;
+        }
     }
 
     public Boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return !isTokenExpired(token);
+            parser.parseClaimsJws(token);
+            return true;
         } catch (Exception e) {
             return false;
         }
     }
-}
\ No newline at end of file
+}
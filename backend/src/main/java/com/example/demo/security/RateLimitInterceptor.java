@@ -0,0 +1,78 @@
+package com.example.demo.security;
+
+import com.example.demo.service.RateLimitResult;
+import com.example.demo.service.RateLimiterService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Enforces {@link RateLimited} on controller methods and reports the caller's quota in
+ * RateLimit-Limit / RateLimit-Remaining / RateLimit-Reset headers, plus Retry-After on 429.
+ *
+ * The client IP is request.getRemoteAddr(), which the servlet container only rewrites from
+ * X-Forwarded-For when the request came through a trusted proxy (server.forward-headers-strategy).
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private record Limit(String key, int capacity, Duration period, RateLimited.KeyBy by) {}
+
+    private final RateLimiterService rateLimiterService;
+    private final Map<Method, Optional<Limit>> limits = new ConcurrentHashMap<>();
+
+    public RateLimitInterceptor(RateLimiterService rateLimiterService) {
+        this.rateLimiterService = rateLimiterService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod handlerMethod)) return true;
+        Limit limit = limits.computeIfAbsent(handlerMethod.getMethod(), m -> resolve(handlerMethod)).orElse(null);
+        if (limit == null) return true;
+
+        RateLimitResult result = rateLimiterService.tryConsume(
+                limit.key() + ":" + subject(request, limit.by()), limit.capacity(), limit.period());
+        response.setHeader("RateLimit-Limit", String.valueOf(result.limit()));
+        response.setHeader("RateLimit-Remaining", String.valueOf(result.remaining()));
+        response.setHeader("RateLimit-Reset", String.valueOf(result.resetSeconds()));
+        if (result.allowed()) return true;
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(result.retryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Too many requests\"}");
+        return false;
+    }
+
+    private static Optional<Limit> resolve(HandlerMethod handlerMethod) {
+        RateLimited annotation = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), RateLimited.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), RateLimited.class);
+        }
+        if (annotation == null) return Optional.empty();
+        return Optional.of(new Limit(annotation.key(), annotation.capacity(),
+                DurationStyle.detectAndParse(annotation.per()), annotation.by()));
+    }
+
+    private static String subject(HttpServletRequest request, RateLimited.KeyBy by) {
+        if (by == RateLimited.KeyBy.USER_OR_IP) {
+            Long userId = JwtUserPrincipal.userIdOf(SecurityContextHolder.getContext().getAuthentication());
+            if (userId != null) return "u" + userId;
+        }
+        return "ip" + request.getRemoteAddr();
+    }
+}
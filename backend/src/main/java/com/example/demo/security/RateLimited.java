@@ -0,0 +1,40 @@
+package com.example.demo.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Rate-limits a controller method (or every method of a controller) through RateLimitInterceptor.
+ *
+ * <pre>
+ * &#64;RateLimited(key = "chat-send", capacity = 60, per = "1m")
+ * </pre>
+ *
+ * Callers get {@code capacity} requests per {@code per}, refilled continuously. Authenticated
+ * callers are limited by user id, anonymous ones by client IP.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimited {
+
+    /** Limiter name; also the metrics prefix. */
+    String key();
+
+    int capacity();
+
+    /** Refill period in Spring Boot duration format, e.g. "30s", "1m", "1h". */
+    String per() default "1m";
+
+    KeyBy by() default KeyBy.USER_OR_IP;
+
+    enum KeyBy {
+        /** The caller's user id when authenticated, otherwise the client IP. */
+        USER_OR_IP,
+        /** Always the client IP, e.g. for login where the user is not known yet. */
+        IP
+    }
+}
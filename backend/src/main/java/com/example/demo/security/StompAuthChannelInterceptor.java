@@ -1,5 +1,9 @@
 package com.example.demo.security;
 
+import com.example.demo.service.JwtTokenService;
+import com.example.demo.service.UserReferenceCache;
+import com.example.demo.service.UserStatusCache;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
@@ -21,6 +25,12 @@ public class StompAuthChannelInterceptor implements ChannelInterceptor {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserReferenceCache userReferenceCache;
+
+    @Autowired
+    private UserStatusCache userStatusCache;
+
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
         StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
@@ -29,10 +39,29 @@ public class StompAuthChannelInterceptor implements ChannelInterceptor {
             if (token != null && token.startsWith("Bearer ")) {
                 token = token.substring(7);
             }
-            if (token != null && jwtUtil.validateToken(token)) {
-                String username = jwtUtil.extractUsername(token);
+            Claims claims = null;
+            if (token != null) {
+                try {
+                    claims = jwtUtil.parseVerifiedClaims(token);
+                } catch (Exception e) {
+                    // Invalid or expired token: leave the session unauthenticated
+                }
+            }
+            if (claims != null) {
+                String username = claims.getSubject();
                 UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                Long userId = claims.get("userId", Long.class);
+                if (userId == null) {
+                    userId = userReferenceCache.requireByUsername(username).id();
+                }
+                Integer generation = claims.get(JwtTokenService.GENERATION_CLAIM, Integer.class);
+                if (generation != null && !userStatusCache.accepts(userId, generation)) {
+                    return message;
+                }
+                // The session principal lives for the whole connection, so every
+                // /app/chat.send frame can use its id without a lookup
+                JwtUserPrincipal principal = new JwtUserPrincipal(userId, username, userDetails.getAuthorities());
+                UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
                 accessor.setUser(auth);
             }
         }
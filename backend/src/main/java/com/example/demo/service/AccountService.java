@@ -0,0 +1,103 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.AuthUser;
+import com.example.demo.entity.EmailChangeRequest;
+import com.example.demo.entity.EmailVerificationToken;
+import com.example.demo.entity.PasswordResetToken;
+import com.example.demo.repository.AuthUserRepository;
+import com.example.demo.repository.EmailChangeRequestRepository;
+import com.example.demo.repository.EmailVerificationTokenRepository;
+import com.example.demo.repository.PasswordResetTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Account flows that write a row and email a link to it. Each runs in one transaction, so the
+ * row and its email_outbox entry commit or roll back together.
+ */
+@Service
+public class AccountService {
+    private final AuthUserRepository authUserRepository;
+    private final UserProfileService userProfileService;
+    private final EmailVerificationTokenRepository emailVerificationTokenRepository;
+    private final PasswordResetTokenRepository passwordResetTokenRepository;
+    private final EmailChangeRequestRepository emailChangeRequestRepository;
+    private final EmailService emailService;
+    private final EmailTemplateService emailTemplateService;
+    private final String appOrigin;
+
+    public AccountService(AuthUserRepository authUserRepository,
+                          UserProfileService userProfileService,
+                          EmailVerificationTokenRepository emailVerificationTokenRepository,
+                          PasswordResetTokenRepository passwordResetTokenRepository,
+                          EmailChangeRequestRepository emailChangeRequestRepository,
+                          EmailService emailService,
+                          EmailTemplateService emailTemplateService,
+                          @Value("${app.origin:http://localhost:3000}") String appOrigin) {
+        this.authUserRepository = authUserRepository;
+        this.userProfileService = userProfileService;
+        this.emailVerificationTokenRepository = emailVerificationTokenRepository;
+        this.passwordResetTokenRepository = passwordResetTokenRepository;
+        this.emailChangeRequestRepository = emailChangeRequestRepository;
+        this.emailService = emailService;
+        this.emailTemplateService = emailTemplateService;
+        this.appOrigin = appOrigin;
+    }
+
+    /**
+     * Creates the user, their profile and a 24h verification token, and queues the verification
+     * email. The password must already be encoded: hashing is slow and should not hold a
+     * connection.
+     */
+    @Transactional
+    public AuthUser register(AuthUser user) {
+        user.setCreatedAt(LocalDateTime.now());
+        user.setUpdatedAt(LocalDateTime.now());
+        user = authUserRepository.save(user);
+        userProfileService.createProfileForUser(user);
+
+        EmailVerificationToken evt = new EmailVerificationToken();
+        evt.setUser(user);
+        evt.setToken(UUID.randomUUID().toString());
+        evt.setExpiresAt(LocalDateTime.now().plusDays(1));
+        emailVerificationTokenRepository.save(evt);
+        String verifyLink = appOrigin + "/verify-email?token=" + evt.getToken();
+        emailService.sendEmail(user.getEmail(), "Verify your email",
+                emailTemplateService.render(EmailTemplateService.VERIFY_EMAIL, Map.of("link", verifyLink)));
+        return user;
+    }
+
+    /** Issues a 2h reset token and queues the reset email; does nothing for an unknown address. */
+    @Transactional
+    public void requestPasswordReset(String email) {
+        AuthUser user = authUserRepository.findByEmail(email).orElse(null);
+        if (user == null) return;
+        PasswordResetToken prt = new PasswordResetToken();
+        prt.setUser(user);
+        prt.setToken(UUID.randomUUID().toString());
+        prt.setExpiresAt(LocalDateTime.now().plusHours(2));
+        passwordResetTokenRepository.save(prt);
+        String resetLink = appOrigin + "/reset-password?token=" + prt.getToken();
+        emailService.sendEmail(user.getEmail(), "Reset your password",
+                emailTemplateService.render(EmailTemplateService.RESET_PASSWORD, Map.of("link", resetLink)));
+    }
+
+    /** Records a pending change to newEmail (valid 2 days) and queues the confirmation to it. */
+    @Transactional
+    public void requestEmailChange(AuthUser user, String newEmail) {
+        EmailChangeRequest ecr = new EmailChangeRequest();
+        ecr.setUser(user);
+        ecr.setNewEmail(newEmail);
+        ecr.setToken(UUID.randomUUID().toString());
+        ecr.setExpiresAt(LocalDateTime.now().plusDays(2));
+        emailChangeRequestRepository.save(ecr);
+        String confirmLink = appOrigin + "/account/email/confirm?token=" + ecr.getToken();
+        emailService.sendEmail(newEmail, "Confirm your new email",
+                emailTemplateService.render(EmailTemplateService.CONFIRM_EMAIL_CHANGE, Map.of("link", confirmLink)));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.service;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Cache decorator that announces every eviction and clear on the CacheInvalidationBus, so other
+ * nodes drop the same entries. Reads and puts only touch the local delegate.
+ */
+public class BroadcastingCache implements Cache {
+    private final Cache delegate;
+    private final CacheInvalidationBus bus;
+
+    public BroadcastingCache(Cache delegate, CacheInvalidationBus bus) {
+        this.delegate = delegate;
+        this.bus = bus;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return delegate.get(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        bus.publish(getName(), key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = delegate.evictIfPresent(key);
+        // Another node may hold the entry even when this one does not
+        bus.publish(getName(), key);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        bus.publish(getName(), null);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean present = delegate.invalidate();
+        bus.publish(getName(), null);
+        return present;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Keeps the per-node caches from CacheConfig consistent across instances over PgNotificationBus.
+ *
+ * Evictions and clears (through BroadcastingCache) publish {cache, key} in the caller's
+ * transaction, so other nodes only hear about committed writes, in commit order. Applying an
+ * eviction twice is harmless, so events carry no version. Keys other than Long, Integer and
+ * String are broadcast as a clear of the whole cache. Events sent while this node's LISTEN
+ * connection was down are lost, so every local cache is cleared when it reconnects.
+ */
+@Service
+@ConditionalOnProperty(name = "app.cache.invalidation.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheInvalidationBus {
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+    static final String CHANNEL = "cache_invalidation";
+
+    private final PgNotificationBus notificationBus;
+    private final ObjectMapper objectMapper;
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "");
+    private volatile CacheManager localCaches;
+
+    private final Counter publishedCounter;
+    private final Counter appliedCounter;
+    private final Counter resyncCounter;
+
+    public CacheInvalidationBus(PgNotificationBus notificationBus,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry) {
+        this.notificationBus = notificationBus;
+        this.objectMapper = objectMapper;
+        this.publishedCounter = meterRegistry.counter("cache.invalidations.published");
+        this.appliedCounter = meterRegistry.counter("cache.invalidations.applied");
+        this.resyncCounter = meterRegistry.counter("cache.invalidations.resyncs");
+    }
+
+    /**
+     * Starts applying remote events to the given caches. These must be the undecorated caches,
+     * so that applying an event does not publish it again.
+     */
+    public void attach(CacheManager localCaches) {
+        this.localCaches = localCaches;
+        notificationBus.onReconnect(this::clearAll);
+        notificationBus.subscribe(CHANNEL, this::apply);
+    }
+
+    /** Announces an eviction of {@code key}, or of the whole cache when key is null. */
+    public void publish(String cacheName, Object key) {
+        ObjectNode event = objectMapper.createObjectNode();
+        event.put("n", nodeId);
+        event.put("c", cacheName);
+        if (key instanceof Long l) {
+            event.put("k", l).put("t", "L");
+        } else if (key instanceof Integer i) {
+            event.put("k", i).put("t", "I");
+        } else if (key instanceof String s) {
+            event.put("k", s).put("t", "S");
+        } else if (key != null) {
+            log.debug("Broadcasting clear of {} for unsupported key type {}", cacheName, key.getClass().getName());
+        }
+        try {
+            notificationBus.publish(CHANNEL, event.toString());
+            publishedCounter.increment();
+        } catch (Exception e) {
+            // Other nodes fall back to TTL expiry; never fail the write over this
+            log.warn("Failed to broadcast invalidation of {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    void apply(String payload) {
+        CacheManager caches = localCaches;
+        if (caches == null) return;
+        JsonNode event;
+        try {
+            event = objectMapper.readTree(payload);
+        } catch (Exception e) {
+            log.warn("Dropping malformed cache invalidation: {}", e.getMessage());
+            return;
+        }
+        // Evictions made on this node were applied locally already
+        if (nodeId.equals(event.path("n").asText())) return;
+        Cache cache = caches.getCache(event.path("c").asText());
+        if (cache == null) return;
+
+        Object key = decodeKey(event);
+        if (key == null) {
+            cache.clear();
+        } else {
+            cache.evict(key);
+        }
+        appliedCounter.increment();
+    }
+
+    // Invalidations may have been missed while disconnected; start over from the database
+    private void clearAll() {
+        CacheManager caches = localCaches;
+        if (caches == null) return;
+        for (String name : caches.getCacheNames()) {
+            Cache cache = caches.getCache(name);
+            if (cache != null) cache.clear();
+        }
+        resyncCounter.increment();
+        log.info("Cleared local caches after the notification listener reconnected");
+    }
+
+    private static Object decodeKey(JsonNode event) {
+        JsonNode k = event.get("k");
+        if (k == null || k.isNull()) return null;
+        return switch (event.path("t").asText()) {
+            case "L" -> k.asLong();
+            case "I" -> k.asInt();
+            default -> k.asText();
+        };
+    }
+}
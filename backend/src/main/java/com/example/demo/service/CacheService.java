@@ -6,13 +6,14 @@ import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Centralized cache management service
+ * Centralized cache management service. Cache names must match those registered in CacheConfig;
+ * single-entry eviction happens on the owning service methods.
  */
 @Service
 @Slf4j
 public class CacheService {
 
-    @CacheEvict(value = {"users", "profiles", "members"}, allEntries = true)
+    @CacheEvict(value = {"profiles", "members", "memberDetails", "filters"}, allEntries = true)
     public void evictUserCaches() {
         log.debug("Evicting all user-related caches");
     }
@@ -28,7 +29,7 @@ public class CacheService {
     }
 
     @CacheEvict(allEntries = true, value = {
-        "users", "profiles", "members", 
+        "profiles", "members", "memberDetails", "filters",
         "startups", "searchResults"
     })
     public void evictAllCaches() {
@@ -0,0 +1,28 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Single entry point for pushing STOMP payloads to a user's /user/... destinations.
+ *
+ * With the simple broker or the external relay, SimpMessagingTemplate already reaches every
+ * session the broker knows about. In postgres broker mode the ClusterChatRelay forwards the
+ * payload to the other nodes that hold sessions for the user.
+ */
+@Service
+public class ChatDeliveryService {
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired(required = false)
+    private ClusterChatRelay clusterChatRelay;
+
+    public void sendToUser(String username, String destination, Object payload) {
+        messagingTemplate.convertAndSendToUser(username, destination, payload);
+        if (clusterChatRelay != null) {
+            clusterChatRelay.forward(username, destination, payload);
+        }
+    }
+}
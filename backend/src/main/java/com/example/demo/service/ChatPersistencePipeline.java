@@ -0,0 +1,283 @@
+package com.example.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for chat messages (app.chat.pipeline.enabled=true).
+ *
+ * ChatService acknowledges and fans out a message immediately and hands it to this bounded
+ * queue. A single writer drains it in batches: one JDBC batch insert per batch, idempotent on
+ * (sender_id, client_message_id), plus one coalesced updated_at bump per conversation.
+ * A full queue rejects new sends with 503; on shutdown the queue is drained before the
+ * DataSource closes. If a batch insert fails, its rows are retried one by one, so a single bad
+ * row (say, a sender deleted meanwhile) does not take the rest of the batch with it.
+ *
+ * A retried (sender, clientMessageId) is recognized while it is queued and, through a bounded
+ * set of recently persisted keys, for app.chat.pipeline.dedupe-window-ms after its flush.
+ */
+@Service
+@ConditionalOnProperty(name = "app.chat.pipeline.enabled", havingValue = "true")
+public class ChatPersistencePipeline implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(ChatPersistencePipeline.class);
+    private static final int MAX_FLUSH_ATTEMPTS = 5;
+    // pgjdbc binds at most 32767 parameters per statement; each row takes 6
+    static final int MAX_BATCH_SIZE = Short.MAX_VALUE / 6;
+
+    public record PendingMessage(Long conversationId, Long senderId, Long recipientId,
+                                 String content, LocalDateTime createdAt, String clientMessageId) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UnreadCounterService unreadCounterService;
+    private final BlockingQueue<PendingMessage> queue;
+    private final Set<String> inFlightKeys = ConcurrentHashMap.newKeySet();
+    private final Cache<String, Boolean> persistedKeys;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+
+    private final Timer flushTimer;
+    private final Counter persistedCounter;
+    private final Counter rejectedCounter;
+    private final Counter droppedCounter;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public ChatPersistencePipeline(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   UnreadCounterService unreadCounterService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.chat.pipeline.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${app.chat.pipeline.batch-size:200}") int batchSize,
+                                   @Value("${app.chat.pipeline.offer-timeout-ms:50}") long offerTimeoutMs,
+                                   @Value("${app.chat.pipeline.dedupe-window-ms:3600000}") long dedupeWindowMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.unreadCounterService = unreadCounterService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (batchSize > MAX_BATCH_SIZE) {
+            log.warn("app.chat.pipeline.batch-size {} exceeds the driver's bind limit; using {}", batchSize, MAX_BATCH_SIZE);
+        }
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.persistedKeys = Caffeine.newBuilder()
+                .maximumSize(Math.max(queueCapacity * 10L, 100_000))
+                .expireAfterWrite(Duration.ofMillis(dedupeWindowMs))
+                .build();
+        Gauge.builder("chat.pipeline.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.flushTimer = Timer.builder("chat.pipeline.flush.latency").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.persistedCounter = meterRegistry.counter("chat.pipeline.messages.persisted");
+        this.rejectedCounter = meterRegistry.counter("chat.pipeline.messages.rejected");
+        this.droppedCounter = meterRegistry.counter("chat.pipeline.messages.dropped");
+    }
+
+    /**
+     * Queues a message for persistence.
+     *
+     * @return false if the same (sender, clientMessageId) is already queued or was persisted
+     *         within the dedupe window
+     * @throws ResponseStatusException 503 when the queue stays full past the offer timeout
+     */
+    public boolean enqueue(PendingMessage message) {
+        if (!running) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Chat is shutting down");
+        }
+        String key = message.senderId() + ":" + message.clientMessageId();
+        if (!inFlightKeys.add(key)) return false;
+        // The writer records a key here before releasing it from inFlightKeys, so no retry slips between the two
+        if (persistedKeys.getIfPresent(key) != null) {
+            inFlightKeys.remove(key);
+            return false;
+        }
+        try {
+            if (!queue.offer(message, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                inFlightKeys.remove(key);
+                rejectedCounter.increment();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Chat is busy, retry shortly");
+            }
+        } catch (InterruptedException e) {
+            inFlightKeys.remove(key);
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted");
+        }
+        return true;
+    }
+
+    private void drainLoop() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                Set<PendingMessage> dropped = flushWithRetry(batch);
+                for (PendingMessage m : batch) {
+                    if (m.clientMessageId() != null && !dropped.contains(m)) {
+                        persistedKeys.put(m.senderId() + ":" + m.clientMessageId(), Boolean.TRUE);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // stop() interrupts only to cut the poll short; keep draining
+            } finally {
+                for (PendingMessage m : batch) inFlightKeys.remove(m.senderId() + ":" + m.clientMessageId());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * One multi-row insert first; if that fails, the remaining attempts insert row by row and
+     * retry only the rows that failed.
+     *
+     * @return the messages dropped after the last attempt
+     */
+    private Set<PendingMessage> flushWithRetry(List<PendingMessage> batch) {
+        try {
+            Integer inserted = flushTimer.record(() -> flush(batch));
+            persistedCounter.increment(inserted == null ? 0 : inserted);
+            return Set.of();
+        } catch (Exception e) {
+            log.warn("Chat batch flush of {} messages failed, retrying row by row: {}", batch.size(), e.getMessage());
+        }
+
+        List<PendingMessage> remaining = new ArrayList<>(batch);
+        for (int attempt = 2; attempt <= MAX_FLUSH_ATTEMPTS && !remaining.isEmpty(); attempt++) {
+            List<PendingMessage> failed = new ArrayList<>();
+            for (PendingMessage m : remaining) {
+                try {
+                    persistedCounter.increment(flush(List.of(m)));
+                } catch (Exception e) {
+                    log.warn("Chat message flush from sender {} failed (attempt {}): {}", m.senderId(), attempt, e.getMessage());
+                    failed.add(m);
+                }
+            }
+            remaining = failed;
+            if (!remaining.isEmpty() && attempt < MAX_FLUSH_ATTEMPTS) {
+                try {
+                    Thread.sleep(100L << attempt);
+                } catch (InterruptedException ie) {
+                    // keep retrying during shutdown
+                }
+            }
+        }
+        if (remaining.isEmpty()) return Set.of();
+        droppedCounter.increment(remaining.size());
+        log.error("Dropped {} of {} chat messages after {} flush attempts", remaining.size(), batch.size(), MAX_FLUSH_ATTEMPTS);
+        return new HashSet<>(remaining);
+    }
+
+    /** @return how many messages were inserted; retried duplicates are skipped by ON CONFLICT */
+    private int flush(List<PendingMessage> batch) {
+        return transactionTemplate.execute(status -> {
+            // One multi-row insert; RETURNING names exactly the rows that went in, which batch
+            // update counts cannot once the driver rewrites batches (every row reports -2)
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO chat_messages (conversation_id, sender_id, recipient_id, content, created_at, client_message_id) VALUES ");
+            List<Object> args = new ArrayList<>(batch.size() * 6);
+            for (int i = 0; i < batch.size(); i++) {
+                PendingMessage m = batch.get(i);
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+                args.add(m.conversationId());
+                args.add(m.senderId());
+                args.add(m.recipientId());
+                args.add(m.content());
+                args.add(Timestamp.valueOf(m.createdAt()));
+                args.add(m.clientMessageId());
+            }
+            sql.append(" ON CONFLICT (sender_id, client_message_id) WHERE client_message_id IS NOT NULL DO NOTHING")
+               .append(" RETURNING sender_id, client_message_id");
+            Set<String> inserted = new HashSet<>();
+            jdbcTemplate.query(sql.toString(), rs -> {
+                String clientMessageId = rs.getString(2);
+                // Rows without a client id never conflict, so they are always inserted
+                if (clientMessageId != null) inserted.add(rs.getLong(1) + ":" + clientMessageId);
+            }, args.toArray());
+
+            // One updated_at bump per conversation, to its newest message in the batch
+            Map<Long, LocalDateTime> latest = new HashMap<>();
+            int count = 0;
+            for (PendingMessage m : batch) {
+                latest.merge(m.conversationId(), m.createdAt(), (a, b) -> a.isAfter(b) ? a : b);
+                // Rows skipped by ON CONFLICT were already counted when first persisted
+                if (m.clientMessageId() == null || inserted.remove(m.senderId() + ":" + m.clientMessageId())) {
+                    unreadCounterService.increment(m.recipientId(), m.conversationId());
+                    count++;
+                }
+            }
+            jdbcTemplate.batchUpdate(
+                    "UPDATE chat_conversations SET updated_at = ? WHERE id = ? AND updated_at < ?",
+                    new ArrayList<>(latest.entrySet()), latest.size(), (ps, e) -> {
+                        Timestamp at = Timestamp.valueOf(e.getValue());
+                        ps.setTimestamp(1, at);
+                        ps.setLong(2, e.getKey());
+                        ps.setTimestamp(3, at);
+                    });
+            return count;
+        });
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "chat-persistence");
+        writer.start();
+        log.info("Chat persistence pipeline started (capacity={}, batchSize={})", queue.remainingCapacity(), batchSize);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread t = writer;
+        if (t == null) return;
+        t.interrupt();
+        try {
+            t.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.error("Chat pipeline stopped with {} unpersisted messages", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop early in shutdown so the DataSource is still open while the queue drains
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 1000;
+    }
+}
@@ -1,18 +1,27 @@
 package com.example.demo.service;
 
-import com.example.demo.entity.AuthUser;
+import com.example.demo.dto.ChatCursor;
+import com.example.demo.dto.ChatDtos;
 import com.example.demo.entity.ChatConversation;
 import com.example.demo.entity.ChatMessage;
 import com.example.demo.repository.AuthUserRepository;
 import com.example.demo.repository.ChatConversationRepository;
 import com.example.demo.repository.ChatMessageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class ChatService {
@@ -23,67 +32,212 @@ public class ChatService {
     @Autowired
     private AuthUserRepository userRepository;
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ChatDeliveryService chatDeliveryService;
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+    @Autowired
+    private UserReferenceCache userReferenceCache;
+    @Autowired(required = false)
+    private ChatPersistencePipeline persistencePipeline;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private record ParticipantPair(long lowId, long highId) {
+        static ParticipantPair of(Long a, Long b) {
+            return a <= b ? new ParticipantPair(a, b) : new ParticipantPair(b, a);
+        }
+    }
+
+    // Conversations are never re-keyed, so pair -> id mappings stay valid once committed
+    private final Cache<ParticipantPair, Long> conversationIds = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
 
     @Transactional
     public ChatConversation getOrCreateConversation(Long userAId, Long userBId) {
-        return conversationRepository.findBetweenUsers(userAId, userBId)
-                .orElseGet(() -> {
-                    ChatConversation c = new ChatConversation();
-                    AuthUser u1 = userRepository.findById(userAId).orElseThrow();
-                    AuthUser u2 = userRepository.findById(userBId).orElseThrow();
-                    c.setUser1(u1);
-                    c.setUser2(u2);
-                    return conversationRepository.save(c);
-                });
+        return conversationRepository.findById(resolveConversationId(userAId, userBId)).orElseThrow();
+    }
+
+    /**
+     * Returns the id of the conversation between two users, creating it if needed. A cache hit
+     * costs nothing; a miss is one probe of the unique pair index, plus an
+     * INSERT ... ON CONFLICT DO NOTHING for new pairs so concurrent callers converge on one row.
+     */
+    @Transactional
+    public Long resolveConversationId(Long userAId, Long userBId) {
+        ParticipantPair pair = ParticipantPair.of(userAId, userBId);
+        Long cached = conversationIds.getIfPresent(pair);
+        if (cached != null) return cached;
+        Optional<Long> existing = conversationRepository.findIdByParticipants(pair.lowId(), pair.highId());
+        if (existing.isPresent()) {
+            conversationIds.put(pair, existing.get());
+            return existing.get();
+        }
+        Long created = jdbcTemplate.query(
+                "INSERT INTO chat_conversations (user1_id, user2_id, created_at, updated_at) VALUES (?, ?, NOW(), NOW()) " +
+                "ON CONFLICT (user1_id, user2_id) DO NOTHING RETURNING id",
+                rs -> rs.next() ? rs.getLong(1) : null, pair.lowId(), pair.highId());
+        if (created == null) {
+            // Lost the race; the winner's row is visible now that its insert committed
+            Long id = conversationRepository.findIdByParticipants(pair.lowId(), pair.highId()).orElseThrow();
+            conversationIds.put(pair, id);
+            return id;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    conversationIds.put(pair, created);
+                }
+            });
+        }
+        return created;
+    }
+
+    public Optional<Long> findConversationId(Long userAId, Long userBId) {
+        ParticipantPair pair = ParticipantPair.of(userAId, userBId);
+        Long cached = conversationIds.getIfPresent(pair);
+        if (cached != null) return Optional.of(cached);
+        Optional<Long> id = conversationRepository.findIdByParticipants(pair.lowId(), pair.highId());
+        id.ifPresent(found -> conversationIds.put(pair, found));
+        return id;
     }
 
     public List<ChatConversation> listConversations(Long userId) {
         return conversationRepository.findAllForUser(userId);
     }
 
-    public List<ChatMessage> listMessages(Long userAId, Long userBId) {
-        return messageRepository.findBetweenUsers(userAId, userBId);
+    @Transactional(readOnly = true)
+    public List<ChatConversationRepository.InboxRow> listInbox(Long userId, ChatCursor before, int limit) {
+        if (before == null) {
+            return conversationRepository.findInbox(userId, limit);
+        }
+        return conversationRepository.findInboxBefore(userId, before.getAt(), before.getId(), limit);
+    }
+
+    /**
+     * One page of a thread, newest first. Pass the cursor of the oldest message already
+     * held by the client to walk further back.
+     */
+    @Transactional(readOnly = true)
+    public List<ChatMessage> listMessages(Long conversationId, ChatCursor before, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (before == null) {
+            return messageRepository.findLatestInConversation(conversationId, page);
+        }
+        return messageRepository.findInConversationBefore(conversationId, before.getAt(), before.getId(), page);
     }
 
     @Transactional
-    public ChatMessage sendMessage(Long senderId, Long recipientId, String content) {
-        ChatConversation conversation = getOrCreateConversation(senderId, recipientId);
-        AuthUser sender = userRepository.findById(senderId).orElseThrow();
-        AuthUser recipient = userRepository.findById(recipientId).orElseThrow();
+    public ChatDtos.ChatMessageDto sendMessage(Long senderId, Long recipientId, String content) {
+        return sendMessage(senderId, recipientId, content, null);
+    }
+
+    /**
+     * Persists and pushes a message. A repeated clientMessageId from the same sender is treated
+     * as a retry and returns the original message without sending it again. With the write-behind
+     * pipeline, retries are recognized while the original is queued and for
+     * app.chat.pipeline.dedupe-window-ms after it was persisted.
+     *
+     * Participants are written as unloaded references and their usernames come from
+     * UserReferenceCache, so the steady-state cost is the insert plus the conversation bump.
+     */
+    @Transactional
+    public ChatDtos.ChatMessageDto sendMessage(Long senderId, Long recipientId, String content, String clientMessageId) {
+        if (clientMessageId != null && persistencePipeline == null) {
+            Optional<ChatMessage> existing = messageRepository.findBySender_IdAndClientMessageId(senderId, clientMessageId);
+            if (existing.isPresent()) return ChatDtos.ChatMessageDto.from(existing.get());
+        }
+        UserReferenceCache.UserRef sender = userReferenceCache.requireById(senderId);
+        UserReferenceCache.UserRef recipient = userReferenceCache.requireById(recipientId);
+        Long conversationId = resolveConversationId(senderId, recipientId);
         ChatMessage message = new ChatMessage();
-        message.setConversation(conversation);
-        message.setSender(sender);
-        message.setRecipient(recipient);
+        message.setConversation(conversationRepository.getReferenceById(conversationId));
+        message.setSender(userRepository.getReferenceById(senderId));
+        message.setRecipient(userRepository.getReferenceById(recipientId));
         message.setContent(content);
         message.setCreatedAt(LocalDateTime.now());
+        message.setClientMessageId(clientMessageId);
+        if (persistencePipeline != null) {
+            return sendViaPipeline(message, conversationId, sender, recipient);
+        }
         ChatMessage saved = messageRepository.save(message);
+        unreadCounterService.increment(recipientId, conversationId);
         // bump conversation updatedAt similar to LinkedIn recent sorting
-        conversation.setUpdatedAt(LocalDateTime.now());
-        conversationRepository.save(conversation);
+        conversationRepository.touch(conversationId, saved.getCreatedAt());
         // Notify recipient via user destination
-        messagingTemplate.convertAndSendToUser(recipient.getUsername(), "/queue/messages", saved);
-        return saved;
+        ChatDtos.ChatMessageDto dto = ChatDtos.ChatMessageDto.of(saved, sender.username(), recipient.username());
+        chatDeliveryService.sendToUser(recipient.username(), "/queue/messages", dto);
+        return dto;
     }
 
+    // Acknowledge and fan out now; the row (and its id) is written by the pipeline's next batch
+    private ChatDtos.ChatMessageDto sendViaPipeline(ChatMessage message, Long conversationId,
+                                                    UserReferenceCache.UserRef sender,
+                                                    UserReferenceCache.UserRef recipient) {
+        if (message.getClientMessageId() == null) {
+            message.setClientMessageId(UUID.randomUUID().toString());
+        }
+        boolean queued = persistencePipeline.enqueue(new ChatPersistencePipeline.PendingMessage(
+                conversationId, sender.id(), recipient.id(),
+                message.getContent(), message.getCreatedAt(), message.getClientMessageId()));
+        if (!queued) {
+            // A retry: answer with the original once it is persisted, and never push it twice
+            return messageRepository.findBySender_IdAndClientMessageId(sender.id(), message.getClientMessageId())
+                    .map(ChatDtos.ChatMessageDto::from)
+                    .orElseGet(() -> ChatDtos.ChatMessageDto.of(message, sender.username(), recipient.username()));
+        }
+        ChatDtos.ChatMessageDto dto = ChatDtos.ChatMessageDto.of(message, sender.username(), recipient.username());
+        chatDeliveryService.sendToUser(recipient.username(), "/queue/messages", dto);
+        return dto;
+    }
+
+    /**
+     * Marks every unread message addressed to the reader as read in one statement and,
+     * if anything changed, sends a read receipt to the other participant once that commits.
+     *
+     * @return number of messages marked read
+     */
     @Transactional
-    public void markConversationRead(Long conversationId, Long readerId) {
-        List<ChatMessage> messages = messageRepository.findByConversation(conversationId);
-        for (ChatMessage m : messages) {
-            if (m.getRecipient().getId().equals(readerId) && m.getReadAt() == null) {
-                m.setReadAt(LocalDateTime.now());
-            }
+    public int markConversationRead(Long conversationId, UserReferenceCache.UserRef reader, UserReferenceCache.UserRef other) {
+        LocalDateTime readAt = LocalDateTime.now();
+        int updated = messageRepository.markReadInConversation(conversationId, reader.id(), readAt);
+        unreadCounterService.reset(reader.id(), conversationId);
+        if (updated > 0) {
+            ChatDtos.ReadReceiptDto receipt = new ChatDtos.ReadReceiptDto();
+            receipt.conversationId = conversationId;
+            receipt.readerUsername = reader.username();
+            receipt.readAt = readAt;
+            receipt.count = updated;
+            // A rolled-back update must not show up as read on the other side
+            afterCommit(() -> chatDeliveryService.sendToUser(other.username(), "/queue/read-receipts", receipt));
         }
-        messageRepository.saveAll(messages);
+        return updated;
     }
 
     public long countUnread(Long conversationId, Long recipientId) {
-        return messageRepository.countByConversation_IdAndRecipient_IdAndReadAtIsNull(conversationId, recipientId);
+        return unreadCounterService.unreadCount(recipientId, conversationId);
+    }
+
+    public long totalUnread(Long recipientId) {
+        return unreadCounterService.totalUnread(recipientId);
     }
 
     public ChatMessage getLastMessage(Long conversationId) {
         return messageRepository.findTopByConversation_IdOrderByCreatedAtDesc(conversationId);
     }
-}
-
 
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
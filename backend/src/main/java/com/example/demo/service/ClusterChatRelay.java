@@ -0,0 +1,199 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process cluster fan-out for app.websocket.broker.mode=postgres.
+ *
+ * Each node registers itself in ws_nodes, records which users hold STOMP sessions on it in
+ * ws_user_nodes, and listens on its own NOTIFY channel. A user-destined payload is forwarded
+ * only to the live nodes that currently have a session for that user.
+ *
+ * The heartbeat runs on its own thread so that long jobs on the shared @Scheduled thread cannot
+ * stall it past the TTL. If peers reaped this node anyway, the next heartbeat re-registers it
+ * together with the sessions it still holds, which the cascade had removed.
+ */
+@Service
+@ConditionalOnProperty(name = "app.websocket.broker.mode", havingValue = "postgres")
+public class ClusterChatRelay {
+    private static final Logger log = LoggerFactory.getLogger(ClusterChatRelay.class);
+    private static final String CHANNEL_PREFIX = "ws_node_";
+    private static final int NODE_TTL_SECONDS = 90;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PgNotificationBus notificationBus;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+    // Sessions held on this node per username; the source for re-publishing ws_user_nodes
+    private final Map<String, Integer> localSessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ws-node-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ClusterChatRelay(JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            PgNotificationBus notificationBus,
+                            SimpMessagingTemplate messagingTemplate,
+                            ObjectMapper objectMapper,
+                            @Value("${app.websocket.node-id:}") String nodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.notificationBus = notificationBus;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.nodeId = StringUtils.hasText(nodeId) ? nodeId : UUID.randomUUID().toString().replace("-", "");
+    }
+
+    @PostConstruct
+    public void register() {
+        inTransaction(() -> {
+            jdbcTemplate.update("INSERT INTO ws_nodes (node_id, last_seen) VALUES (?, NOW()) " +
+                    "ON CONFLICT (node_id) DO UPDATE SET last_seen = NOW()", nodeId);
+            // A fixed node id restarting must not inherit the sessions of its previous run
+            jdbcTemplate.update("DELETE FROM ws_user_nodes WHERE node_id = ?", nodeId);
+        });
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, 30, 30, TimeUnit.SECONDS);
+        notificationBus.subscribe(CHANNEL_PREFIX + nodeId, this::deliverLocally);
+        log.info("Cluster chat relay started as node {}", nodeId);
+    }
+
+    @PreDestroy
+    public void deregister() {
+        heartbeatScheduler.shutdownNow();
+        try {
+            inTransaction(() -> jdbcTemplate.update("DELETE FROM ws_nodes WHERE node_id = ?", nodeId));
+        } catch (Exception e) {
+            log.warn("Failed to deregister node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    public void heartbeat() {
+        try {
+            inTransaction(() -> {
+                int alive = jdbcTemplate.update("UPDATE ws_nodes SET last_seen = NOW() WHERE node_id = ?", nodeId);
+                if (alive == 0) {
+                    log.warn("Node {} was reaped by a peer; re-registering {} users", nodeId, localSessions.size());
+                    jdbcTemplate.update("INSERT INTO ws_nodes (node_id, last_seen) VALUES (?, NOW()) " +
+                            "ON CONFLICT (node_id) DO UPDATE SET last_seen = NOW()", nodeId);
+                    republishSessions();
+                }
+                // Sessions on crashed nodes go away with the node row (ON DELETE CASCADE)
+                jdbcTemplate.update("DELETE FROM ws_nodes WHERE last_seen < NOW() - make_interval(secs => ?)", NODE_TTL_SECONDS * 2);
+            });
+        } catch (Exception e) {
+            // Keep the schedule alive; the next beat retries
+            log.warn("Heartbeat of node {} failed: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private void republishSessions() {
+        List<Map.Entry<String, Integer>> sessions = new ArrayList<>(localSessions.entrySet());
+        jdbcTemplate.batchUpdate("INSERT INTO ws_user_nodes (username, node_id, sessions) VALUES (?, ?, ?) " +
+                "ON CONFLICT (username, node_id) DO UPDATE SET sessions = EXCLUDED.sessions",
+                sessions, 500, (ps, e) -> {
+                    ps.setString(1, e.getKey());
+                    ps.setString(2, nodeId);
+                    ps.setInt(3, e.getValue());
+                });
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        if (user == null) return;
+        localSessions.merge(user.getName(), 1, Integer::sum);
+        try {
+            inTransaction(() -> jdbcTemplate.update("INSERT INTO ws_user_nodes (username, node_id, sessions) VALUES (?, ?, 1) " +
+                    "ON CONFLICT (username, node_id) DO UPDATE SET sessions = ws_user_nodes.sessions + 1",
+                    user.getName(), nodeId));
+        } catch (Exception e) {
+            // e.g. the node row was just reaped; the next heartbeat re-publishes from localSessions
+            log.warn("Failed to record session of {} on node {}: {}", user.getName(), nodeId, e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        Principal user = event.getUser();
+        if (user == null) return;
+        localSessions.computeIfPresent(user.getName(), (name, n) -> n > 1 ? n - 1 : null);
+        inTransaction(() -> {
+            jdbcTemplate.update("UPDATE ws_user_nodes SET sessions = sessions - 1 WHERE username = ? AND node_id = ?",
+                    user.getName(), nodeId);
+            jdbcTemplate.update("DELETE FROM ws_user_nodes WHERE username = ? AND node_id = ? AND sessions <= 0",
+                    user.getName(), nodeId);
+        });
+    }
+
+    /** Forwards a user-destined payload to every other live node holding a session for the user. */
+    public void forward(String username, String destination, Object payload) {
+        List<String> nodes = jdbcTemplate.queryForList(
+                "SELECT u.node_id FROM ws_user_nodes u JOIN ws_nodes n ON n.node_id = u.node_id " +
+                "WHERE u.username = ? AND u.node_id <> ? AND n.last_seen > NOW() - make_interval(secs => ?)",
+                String.class, username, nodeId, NODE_TTL_SECONDS);
+        if (nodes.isEmpty()) return;
+        String envelope;
+        try {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("user", username);
+            node.put("destination", destination);
+            node.set("payload", objectMapper.valueToTree(payload));
+            envelope = objectMapper.writeValueAsString(node);
+        } catch (Exception e) {
+            log.error("Failed to serialize payload for {}: {}", username, e.getMessage());
+            return;
+        }
+        for (String target : nodes) {
+            notificationBus.publish(CHANNEL_PREFIX + target, envelope);
+        }
+    }
+
+    private void deliverLocally(String envelope) {
+        try {
+            JsonNode node = objectMapper.readTree(envelope);
+            messagingTemplate.convertAndSendToUser(node.get("user").asText(), node.get("destination").asText(),
+                    node.get("payload"));
+        } catch (Exception e) {
+            log.error("Failed to deliver cluster message: {}", e.getMessage());
+        }
+    }
+
+    // The pool runs with auto-commit off, so writes outside a transaction would be rolled back
+    private void inTransaction(Runnable work) {
+        transactionTemplate.executeWithoutResult(status -> work.run());
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
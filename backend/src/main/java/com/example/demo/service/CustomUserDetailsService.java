@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -13,7 +14,7 @@ import org.springframework.stereotype.Service;
 import java.util.Collections;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private AuthUserRepository authUserRepository;
@@ -33,4 +34,17 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .disabled(!authUser.getEnabled())
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Called by DaoAuthenticationProvider after a successful login whose stored hash is outdated
+     * (legacy format, another algorithm, or a lower cost than configured).
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        authUserRepository.findByUsername(user.getUsername()).ifPresent(authUser -> {
+            authUser.setPassword(newPassword);
+            authUserRepository.save(authUser);
+        });
+        return User.withUserDetails(user).password(newPassword).build();
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers email_outbox rows. Each poll claims a batch with SKIP LOCKED (so several nodes can
+ * run it), sends the batch over one SMTP connection, then marks rows sent or schedules a retry
+ * with exponential backoff. Rows stuck in SENDING by a crashed node are released after a timeout;
+ * delivery is therefore at-least-once.
+ *
+ * Polling runs on its own thread, so a slow SMTP server (bounded by the mail.smtp timeouts)
+ * delays only the outbox and never the shared @Scheduled jobs.
+ */
+@Service
+public class EmailOutboxDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private record Claimed(long id, String recipient, String subject, String body, int attempts, LocalDateTime createdAt) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JavaMailSender mailSender;
+    private final String from;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long pollIntervalMs;
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "email-outbox");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final Timer sendTimer;
+    private final Timer deliveryDelay;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    public EmailOutboxDispatcher(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 JavaMailSender mailSender,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.mail.from:no-reply@example.com}") String from,
+                                 @Value("${app.mail.outbox.batch-size:50}") int batchSize,
+                                 @Value("${app.mail.outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${app.mail.outbox.poll-interval-ms:2000}") long pollIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.mailSender = mailSender;
+        this.from = from;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.pollIntervalMs = pollIntervalMs;
+        Gauge.builder("email.outbox.backlog", backlog, AtomicLong::get).register(meterRegistry);
+        this.sendTimer = Timer.builder("email.outbox.send.latency").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.deliveryDelay = meterRegistry.timer("email.outbox.delivery.delay");
+        this.sentCounter = meterRegistry.counter("email.outbox.sent");
+        this.failedCounter = meterRegistry.counter("email.outbox.failed");
+    }
+
+    @PostConstruct
+    public void start() {
+        poller.scheduleWithFixedDelay(this::dispatch, 5_000, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.shutdownNow();
+    }
+
+    /** Sends due emails until the backlog is drained or a batch comes back short. */
+    public void dispatch() {
+        try {
+            List<Claimed> batch;
+            do {
+                batch = claim();
+                if (!batch.isEmpty()) send(batch);
+            } while (batch.size() == batchSize);
+            Long pending = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM email_outbox WHERE status = 'PENDING'", Long.class);
+            backlog.set(pending != null ? pending : 0);
+        } catch (Exception e) {
+            log.warn("Email outbox dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    private List<Claimed> claim() {
+        return transactionTemplate.execute(status -> jdbcTemplate.query(
+                "UPDATE email_outbox SET status = 'SENDING', attempts = attempts + 1, claimed_at = NOW() " +
+                "WHERE id IN (SELECT id FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= NOW() " +
+                "ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                "RETURNING id, recipient, subject, body, attempts, created_at",
+                (rs, i) -> new Claimed(rs.getLong("id"), rs.getString("recipient"), rs.getString("subject"),
+                        rs.getString("body"), rs.getInt("attempts"), rs.getTimestamp("created_at").toLocalDateTime()),
+                batchSize));
+    }
+
+    private void send(List<Claimed> batch) {
+        Map<MimeMessage, Claimed> byMessage = new IdentityHashMap<>();
+        List<Claimed> failed = new ArrayList<>();
+        Map<Long, String> errors = new HashMap<>();
+        for (Claimed email : batch) {
+            try {
+                byMessage.put(toMimeMessage(email), email);
+            } catch (MessagingException e) {
+                failed.add(email);
+                errors.put(email.id(), e.getMessage());
+            }
+        }
+        long started = System.nanoTime();
+        try {
+            // One SMTP connection for the whole batch
+            mailSender.send(byMessage.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                // Connection-level failure: nothing in the batch went out
+                byMessage.values().forEach(email -> errors.put(email.id(), e.getMessage()));
+                failed.addAll(byMessage.values());
+            } else {
+                e.getFailedMessages().forEach((message, cause) -> {
+                    Claimed email = byMessage.get(message);
+                    if (email != null) {
+                        failed.add(email);
+                        errors.put(email.id(), cause.getMessage());
+                    }
+                });
+            }
+        } catch (Exception e) {
+            byMessage.values().forEach(email -> errors.put(email.id(), e.getMessage()));
+            failed.addAll(byMessage.values());
+        } finally {
+            sendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+
+        List<Claimed> sent = new ArrayList<>(batch);
+        sent.removeAll(failed);
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("UPDATE email_outbox SET status = 'SENT', sent_at = NOW(), last_error = NULL WHERE id = ?",
+                    sent, sent.size(), (ps, email) -> ps.setLong(1, email.id()));
+            jdbcTemplate.batchUpdate("UPDATE email_outbox SET status = ?, next_attempt_at = ?, last_error = ? WHERE id = ?",
+                    failed, failed.size(), (ps, email) -> {
+                        boolean giveUp = email.attempts() >= maxAttempts;
+                        ps.setString(1, giveUp ? "FAILED" : "PENDING");
+                        ps.setTimestamp(2, Timestamp.valueOf(now.plusSeconds(backoffSeconds(email.attempts()))));
+                        ps.setString(3, errors.get(email.id()));
+                        ps.setLong(4, email.id());
+                    });
+        });
+        for (Claimed email : sent) {
+            deliveryDelay.record(Duration.between(email.createdAt(), now));
+        }
+        sentCounter.increment(sent.size());
+        failedCounter.increment(failed.size());
+        if (!failed.isEmpty()) {
+            log.warn("{} of {} outbox emails failed and will be retried", failed.size(), batch.size());
+        }
+    }
+
+    // 30s, 1m, 2m, 4m ... capped at 1h
+    private static long backoffSeconds(int attempts) {
+        return Math.min(3600, 30L << Math.min(attempts - 1, 7));
+    }
+
+    private MimeMessage toMimeMessage(Claimed email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setFrom(from);
+        helper.setTo(email.recipient());
+        helper.setSubject(email.subject());
+        helper.setText(email.body(), true);
+        return message;
+    }
+
+    /** Releases rows left in SENDING by a node that died mid-batch, and drops old sent rows. */
+    @Scheduled(fixedDelay = 300_000, initialDelay = 60_000)
+    public void recover() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("UPDATE email_outbox SET status = 'PENDING' " +
+                        "WHERE status = 'SENDING' AND claimed_at < NOW() - INTERVAL '10 minutes'");
+                jdbcTemplate.update("DELETE FROM email_outbox WHERE status = 'SENT' AND sent_at < NOW() - INTERVAL '7 days'");
+            });
+        } catch (Exception e) {
+            log.warn("Email outbox maintenance failed: {}", e.getMessage());
+        }
+    }
+}
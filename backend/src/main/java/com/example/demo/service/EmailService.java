@@ -1,37 +1,40 @@
 package com.example.demo.service;
 
-import jakarta.mail.MessagingException;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import jakarta.mail.internet.MimeMessage;
+import java.util.List;
 
+/**
+ * Queues outgoing email in the email_outbox table; EmailOutboxDispatcher delivers it in the
+ * background. Callers never wait on SMTP, and an email is only sent if the transaction that
+ * queued it commits.
+ */
 @Service
 public class EmailService {
-    private final JavaMailSender mailSender;
+    public record OutgoingEmail(String to, String subject, String html) {}
 
-    @Value("${app.mail.from:no-reply@example.com}")
-    private String from;
+    private final JdbcTemplate jdbcTemplate;
 
-    public EmailService(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
     }
 
+    /** Joins the caller's transaction when there is one. */
+    @Transactional
     public void sendEmail(String to, String subject, String html) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-            helper.setFrom(from);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(html, true);
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            throw new RuntimeException("Failed to send email", e);
-        }
+        jdbcTemplate.update("INSERT INTO email_outbox (recipient, subject, body) VALUES (?, ?, ?)", to, subject, html);
     }
-}
-
 
+    /** Queues a bulk send (e.g. bodies from EmailTemplateService.renderBatch) in one JDBC batch. */
+    @Transactional
+    public void sendEmails(List<OutgoingEmail> emails) {
+        jdbcTemplate.batchUpdate("INSERT INTO email_outbox (recipient, subject, body) VALUES (?, ?, ?)",
+                emails, 500, (ps, email) -> {
+                    ps.setString(1, email.to());
+                    ps.setString(2, email.subject());
+                    ps.setString(3, email.html());
+                });
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.service;
+
+import org.springframework.stereotype.Service;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.TemplateSpec;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders email bodies from templates/mail/*.html.
+ *
+ * Uses its own Thymeleaf engine rather than the web one, so templates stay cached even when
+ * devtools turns the view cache off: each template is parsed once (at startup for the known
+ * ones) and a render only evaluates the per-recipient expressions over the cached parse tree.
+ */
+@Service
+public class EmailTemplateService {
+    public static final String VERIFY_EMAIL = "verify-email";
+    public static final String RESET_PASSWORD = "reset-password";
+    public static final String CONFIRM_EMAIL_CHANGE = "confirm-email-change";
+
+    private static final Locale LOCALE = Locale.ENGLISH;
+
+    private final TemplateEngine engine;
+
+    public EmailTemplateService() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/mail/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        resolver.setCacheTTLMs(null);
+        engine = new TemplateEngine();
+        engine.setTemplateResolver(resolver);
+        // Parse up front; a broken template fails startup instead of the first send
+        for (String template : List.of(VERIFY_EMAIL, RESET_PASSWORD, CONFIRM_EMAIL_CHANGE)) {
+            render(template, Map.of());
+        }
+    }
+
+    public String render(String template, Map<String, Object> variables) {
+        return engine.process(template, new Context(LOCALE, variables));
+    }
+
+    /**
+     * Renders one template for many recipients (digests and other bulk sends), reusing a single
+     * context and output buffer across the batch.
+     */
+    public List<String> renderBatch(String template, List<? extends Map<String, Object>> variables) {
+        TemplateSpec spec = new TemplateSpec(template, TemplateMode.HTML);
+        Context context = new Context(LOCALE);
+        StringWriter out = new StringWriter(2048);
+        List<String> bodies = new ArrayList<>(variables.size());
+        for (Map<String, Object> recipient : variables) {
+            context.clearVariables();
+            context.setVariables(recipient);
+            out.getBuffer().setLength(0);
+            engine.process(spec, context, out);
+            bodies.add(out.toString());
+        }
+        return bodies;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Deletes expired rows from the auth token tables, which are otherwise append-only.
+ *
+ * Each table is purged in small batches, each in its own short transaction, selecting victims by
+ * ctid with SKIP LOCKED so a run never holds long locks or blocks live token lookups, and
+ * several nodes can run it at once. A row is purged once it has been expired for longer than
+ * its table's retention; refresh tokens keep a margin so reuse detection still sees
+ * recently rotated tokens.
+ */
+@Service
+@ConditionalOnProperty(name = "app.auth.reaper.enabled", havingValue = "true", matchIfMissing = true)
+public class ExpiredTokenReaper {
+    private static final Logger log = LoggerFactory.getLogger(ExpiredTokenReaper.class);
+
+    private record Target(String table, Duration retention) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final List<Target> targets;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseMs;
+
+    public ExpiredTokenReaper(JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.auth.reaper.retention.refresh-tokens:7d}") Duration refreshRetention,
+                              @Value("${app.auth.reaper.retention.email-verification-tokens:1d}") Duration verificationRetention,
+                              @Value("${app.auth.reaper.retention.password-reset-tokens:1d}") Duration resetRetention,
+                              @Value("${app.auth.reaper.retention.email-change-requests:1d}") Duration emailChangeRetention,
+                              @Value("${app.auth.reaper.batch-size:5000}") int batchSize,
+                              @Value("${app.auth.reaper.max-batches-per-run:200}") int maxBatchesPerRun,
+                              @Value("${app.auth.reaper.pause-ms:50}") long pauseMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.targets = List.of(
+                new Target("refresh_tokens", refreshRetention),
+                new Target("email_verification_tokens", verificationRetention),
+                new Target("password_reset_tokens", resetRetention),
+                new Target("email_change_requests", emailChangeRetention));
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseMs = pauseMs;
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.reaper.interval-ms:3600000}", initialDelay = 120_000)
+    public void purgeExpired() {
+        for (Target target : targets) {
+            try {
+                purge(target);
+            } catch (Exception e) {
+                log.warn("Purging expired rows from {} failed: {}", target.table(), e.getMessage());
+            }
+        }
+    }
+
+    /** @return rows deleted from the table in this run */
+    private long purge(Target target) {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(target.retention()));
+        // Table names come from the fixed list above, never from input
+        String sql = "DELETE FROM " + target.table() + " WHERE ctid = ANY(ARRAY(" +
+                "SELECT ctid FROM " + target.table() + " WHERE expires_at < ? LIMIT ? FOR UPDATE SKIP LOCKED))";
+        Timer timer = meterRegistry.timer("auth.tokens.purge.duration", "table", target.table());
+        long total = 0;
+        long started = System.nanoTime();
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                Integer deleted = transactionTemplate.execute(status -> jdbcTemplate.update(sql, cutoff, batchSize));
+                int n = deleted != null ? deleted : 0;
+                total += n;
+                if (n < batchSize) break;
+                Thread.sleep(pauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            timer.record(Duration.ofNanos(System.nanoTime() - started));
+            meterRegistry.counter("auth.tokens.purged", "table", target.table()).increment(total);
+        }
+        if (total > 0) {
+            log.info("Purged {} expired rows from {}", total, target.table());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Per-node buckets (app.rate-limit.store=memory, the default). Limits apply per instance.
+ *
+ * Keys idle for longer than expire-after-access are dropped. That is harmless as long as it is at
+ * least the longest refill period, since such a bucket would be full again anyway. The key count
+ * is capped, so rotating IPs or emails cannot grow the heap without bound.
+ */
+@Service
+@ConditionalOnProperty(name = "app.rate-limit.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Cache<String, Bucket> buckets;
+
+    public InMemoryRateLimitStore(@Value("${app.rate-limit.memory.max-keys:100000}") long maxKeys,
+                                  @Value("${app.rate-limit.memory.expire-after-access:1h}") Duration expireAfterAccess) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+    }
+
+    @Override
+    public RateLimitResult tryConsume(String key, int capacity, Duration period) {
+        Bucket bucket = buckets.get(key, k -> Bucket.builder()
+                .addLimit(Bandwidth.classic(capacity, Refill.greedy(capacity, period)))
+                .build());
+        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+        return new RateLimitResult(probe.isConsumed(), capacity, probe.getRemainingTokens(), period,
+                probe.isConsumed() ? 0 : probe.getNanosToWaitForRefill());
+    }
+}
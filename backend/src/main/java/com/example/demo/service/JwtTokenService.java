@@ -2,41 +2,78 @@ package com.example.demo.service;
 
 import com.example.demo.entity.AuthUser;
 import com.example.demo.entity.RefreshToken;
+import com.example.demo.repository.AuthUserRepository;
 import com.example.demo.repository.RefreshTokenRepository;
 import com.example.demo.security.JwtUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.security.SecureRandom;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
 public class JwtTokenService {
+    private static final Logger log = LoggerFactory.getLogger(JwtTokenService.class);
+
+    /** Access-token claim holding the user's token generation at issue time. */
+    public static final String GENERATION_CLAIM = "gen";
+
     private final JwtUtil jwtUtil;
     private final RefreshTokenRepository refreshTokenRepository;
+    private final AuthUserRepository authUserRepository;
+    private final UserStatusCache userStatusCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Outcome of a successful rotation. user is an unmanaged snapshot holding just the access-token claims. */
+    public record Rotation(AuthUser user, String refreshTokenId) {}
+
+    private record Consumed(AuthUser user, String familyId) {}
 
     @Value("${spring.security.jwt.refresh-expiration:2592000000}")
     private long refreshMs;
 
-    public JwtTokenService(JwtUtil jwtUtil, RefreshTokenRepository refreshTokenRepository) {
+    @Value("${spring.security.jwt.refresh-reuse-grace-seconds:10}")
+    private long reuseGraceSeconds;
+
+    public JwtTokenService(JwtUtil jwtUtil, RefreshTokenRepository refreshTokenRepository,
+                           AuthUserRepository authUserRepository, UserStatusCache userStatusCache,
+                           JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
         this.jwtUtil = jwtUtil;
         this.refreshTokenRepository = refreshTokenRepository;
+        this.authUserRepository = authUserRepository;
+        this.userStatusCache = userStatusCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
     }
 
-    public Map<String, String> generateTokensForUser(AuthUser user, String ip, String userAgent) {
+    public String generateAccessToken(AuthUser user) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", user.getId());
         claims.put("email", user.getEmail());
         claims.put("role", user.getRole());
-        String access = jwtUtil.generateToken(user.getUsername(), claims);
+        claims.put(GENERATION_CLAIM, user.getTokenGeneration());
+        return jwtUtil.generateToken(user.getUsername(), claims);
+    }
+
+    public Map<String, String> generateTokensForUser(AuthUser user, String ip, String userAgent) {
+        String access = generateAccessToken(user);
 
         String refreshTokenId = generateTokenId();
         RefreshToken refresh = new RefreshToken();
         refresh.setUser(user);
         refresh.setTokenId(refreshTokenId);
+        refresh.setFamilyId(refreshTokenId);
         refresh.setIpAddress(ip);
         refresh.setUserAgent(userAgent);
         refresh.setExpiresAt(LocalDateTime.now().plusSeconds(refreshMs / 1000));
@@ -48,31 +85,76 @@ public class JwtTokenService {
         return tokens;
     }
 
-    public RefreshToken rotateRefreshToken(String currentTokenId, AuthUser user, String ip, String userAgent) {
-        RefreshToken current = refreshTokenRepository.findByTokenId(currentTokenId)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
-        if (current.isRevoked() || current.getExpiresAt().isBefore(LocalDateTime.now())) {
-            throw new IllegalArgumentException("Refresh token expired or revoked");
-        }
-        current.setRevoked(true);
+    /**
+     * Exchanges a refresh token for a new one of the same family.
+     *
+     * The current token is consumed by one conditional UPDATE ... RETURNING (which also reads
+     * the user's token claims), followed by one INSERT, so of several concurrent refreshes with
+     * the same token exactly one wins. The losers of such a race (two tabs refreshing at once)
+     * are rejected without side effects. Presenting a token rotated longer than the grace
+     * window ago means it leaked or was replayed: the whole family is revoked, logging out the
+     * legitimate holder too. Either way the caller gets the same error as for any other
+     * invalid token.
+     *
+     * @throws IllegalArgumentException if the token is unknown, expired, revoked or reused
+     */
+    public Rotation rotateRefreshToken(String currentTokenId, String ip, String userAgent) {
         String newId = generateTokenId();
-        current.setReplacedByTokenId(newId);
-        refreshTokenRepository.save(current);
-
-        RefreshToken next = new RefreshToken();
-        next.setUser(user);
-        next.setTokenId(newId);
-        next.setIpAddress(ip);
-        next.setUserAgent(userAgent);
-        next.setExpiresAt(LocalDateTime.now().plusSeconds(refreshMs / 1000));
-        return refreshTokenRepository.save(next);
+        LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(refreshMs / 1000);
+        Rotation rotation = transactionTemplate.execute(status -> {
+            List<Consumed> consumed = jdbcTemplate.query(
+                    "UPDATE refresh_tokens rt SET revoked = true, replaced_by_token_id = ?, rotated_at = NOW() " +
+                    "FROM users u " +
+                    "WHERE rt.token_id = ? AND rt.revoked = false AND rt.expires_at > NOW() " +
+                    "AND u.id = rt.user_id AND u.enabled = true " +
+                    "RETURNING rt.user_id, rt.family_id, u.username, u.email, u.role, u.token_generation",
+                    (rs, i) -> {
+                        AuthUser user = new AuthUser();
+                        user.setId(rs.getLong("user_id"));
+                        user.setUsername(rs.getString("username"));
+                        user.setEmail(rs.getString("email"));
+                        user.setRole(rs.getString("role"));
+                        user.setTokenGeneration(rs.getInt("token_generation"));
+                        return new Consumed(user, rs.getString("family_id"));
+                    },
+                    newId, currentTokenId);
+            if (consumed.isEmpty()) return null;
+            Consumed current = consumed.get(0);
+            jdbcTemplate.update(
+                    "INSERT INTO refresh_tokens (user_id, token_id, family_id, ip_address, user_agent, created_at, expires_at) " +
+                    "VALUES (?, ?, ?, ?, ?, NOW(), ?)",
+                    current.user().getId(), newId, current.familyId(), ip, userAgent, Timestamp.valueOf(expiresAt));
+            return new Rotation(current.user(), newId);
+        });
+        if (rotation != null) return rotation;
+
+        // Committed on its own: the caller's request fails either way. A token rotated within the
+        // grace window lost a concurrent refresh; its family, including the winner's token, stays.
+        Integer revoked = transactionTemplate.execute(status -> jdbcTemplate.update(
+                "UPDATE refresh_tokens SET revoked = true WHERE revoked = false AND family_id = " +
+                "(SELECT family_id FROM refresh_tokens WHERE token_id = ? AND replaced_by_token_id IS NOT NULL " +
+                "AND rotated_at < NOW() - make_interval(secs => ?))",
+                currentTokenId, reuseGraceSeconds));
+        if (revoked != null && revoked > 0) {
+            log.warn("Rotated refresh token presented again; revoked {} tokens of its family", revoked);
+        }
+        throw new IllegalArgumentException("Refresh token expired or revoked");
     }
 
+    @Transactional
     public void revokeAllUserTokens(AuthUser user) {
-        // Simple approach: mark all as revoked
-        refreshTokenRepository.findAll().stream()
-                .filter(t -> t.getUser().getId().equals(user.getId()) && !t.isRevoked())
-                .forEach(t -> { t.setRevoked(true); refreshTokenRepository.save(t); });
+        refreshTokenRepository.revokeAllForUser(user.getId());
+    }
+
+    /**
+     * Revokes every refresh token of the user and bumps their token generation, which
+     * invalidates all outstanding access tokens without touching them individually.
+     */
+    @Transactional
+    public void logoutEverywhere(Long userId) {
+        refreshTokenRepository.revokeAllForUser(userId);
+        authUserRepository.incrementTokenGeneration(userId);
+        userStatusCache.evictAfterCommit(userId);
     }
 
     private String generateTokenId() {
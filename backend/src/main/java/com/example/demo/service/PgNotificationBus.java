@@ -0,0 +1,205 @@
+package com.example.demo.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Cross-node messaging over Postgres LISTEN/NOTIFY, so several backend instances sharing one
+ * database can exchange events without extra infrastructure.
+ *
+ * Publishing goes through the pooled connection and joins the caller's transaction, so
+ * notifications are only delivered once that transaction commits. Listening uses one
+ * dedicated connection outside the pool, opened lazily on the first subscription.
+ */
+@Service
+public class PgNotificationBus implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(PgNotificationBus.class);
+
+    // Postgres rejects NOTIFY payloads of 8000 bytes or more
+    private static final int MAX_INLINE_BYTES = 7900;
+    private static final char INLINE = 'i';
+    private static final char REFERENCE = 'r';
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+    private final List<Runnable> reconnectCallbacks = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<String> pendingListens = new ConcurrentLinkedQueue<>();
+    private volatile Thread listenerThread;
+    private volatile boolean running = true;
+
+    public PgNotificationBus(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${spring.datasource.url}") String url,
+                             @Value("${spring.datasource.username:}") String username,
+                             @Value("${spring.datasource.password:}") String password) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Sends a payload to every node listening on the channel, after the current transaction
+     * commits (or immediately when called outside one).
+     */
+    public void publish(String channel, String payload) {
+        transactionTemplate.executeWithoutResult(status -> {
+            String framed;
+            if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_INLINE_BYTES) {
+                Long id = jdbcTemplate.queryForObject(
+                        "INSERT INTO cluster_notify_payloads (payload) VALUES (?) RETURNING id", Long.class, payload);
+                framed = REFERENCE + String.valueOf(id);
+            } else {
+                framed = INLINE + payload;
+            }
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, framed);
+        });
+    }
+
+    /**
+     * Registers a handler for a channel. Handlers run on the listener thread and must not block.
+     */
+    public void subscribe(String channel, Consumer<String> handler) {
+        handlers.computeIfAbsent(channel, c -> {
+            pendingListens.add(c);
+            return new CopyOnWriteArrayList<>();
+        }).add(handler);
+        startListener();
+    }
+
+    /**
+     * Registers a callback for when the listener connection is re-established after a failure.
+     * Notifications sent while it was down are not delivered, so subscribers that keep derived
+     * state should resynchronize here. Runs on the listener thread and must not block.
+     */
+    public void onReconnect(Runnable callback) {
+        reconnectCallbacks.add(callback);
+    }
+
+    /** Parked oversized payloads only need to outlive delivery. */
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void purgeParkedPayloads() {
+        if (listenerThread == null) return;
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.update("DELETE FROM cluster_notify_payloads WHERE created_at < NOW() - INTERVAL '5 minutes'"));
+        } catch (Exception e) {
+            log.warn("Failed to purge parked notify payloads: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void startListener() {
+        if (listenerThread != null) return;
+        Thread t = new Thread(this::listenLoop, "pg-notify-listener");
+        t.setDaemon(true);
+        listenerThread = t;
+        t.start();
+    }
+
+    private void listenLoop() {
+        long backoffMs = 1000;
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                connection.setAutoCommit(true);
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                // (Re)subscribe everything on a fresh connection
+                pendingListens.clear();
+                for (String channel : handlers.keySet()) listen(connection, channel);
+                backoffMs = 1000;
+                if (reconnecting) {
+                    // Listening again before the callbacks run, so nothing falls in between
+                    reconnectCallbacks.forEach(this::runReconnectCallback);
+                    reconnecting = false;
+                }
+                while (running) {
+                    String channel;
+                    while ((channel = pendingListens.poll()) != null) listen(connection, channel);
+                    PGNotification[] notifications = pg.getNotifications(500);
+                    if (notifications == null) continue;
+                    for (PGNotification n : notifications) dispatch(n.getName(), n.getParameter());
+                }
+            } catch (SQLException e) {
+                if (!running) return;
+                reconnecting = true;
+                log.warn("LISTEN connection lost, retrying in {} ms: {}", backoffMs, e.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, 30_000);
+            }
+        }
+    }
+
+    private void runReconnectCallback(Runnable callback) {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            log.error("Reconnect callback failed: {}", e.getMessage());
+        }
+    }
+
+    private static void listen(Connection connection, String channel) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("LISTEN \"" + channel.replace("\"", "") + "\"");
+        }
+    }
+
+    private void dispatch(String channel, String framed) {
+        List<Consumer<String>> channelHandlers = handlers.get(channel);
+        if (channelHandlers == null || framed == null || framed.isEmpty()) return;
+        String payload;
+        try {
+            payload = framed.charAt(0) == REFERENCE
+                    ? jdbcTemplate.queryForObject("SELECT payload FROM cluster_notify_payloads WHERE id = ?",
+                            String.class, Long.parseLong(framed.substring(1)))
+                    : framed.substring(1);
+        } catch (Exception e) {
+            log.warn("Dropping notification on {}: {}", channel, e.getMessage());
+            return;
+        }
+        for (Consumer<String> handler : channelHandlers) {
+            try {
+                handler.accept(payload);
+            } catch (Exception e) {
+                log.error("Notification handler for {} failed: {}", channel, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        Thread t = listenerThread;
+        if (t != null) t.interrupt();
+    }
+}
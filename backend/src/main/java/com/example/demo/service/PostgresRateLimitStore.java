@@ -0,0 +1,70 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+/**
+ * Buckets shared by every node through the rate_limit_buckets table (app.rate-limit.store=postgres),
+ * so N instances still allow only the configured attempts in total.
+ *
+ * Each attempt is one upsert that refills the bucket for the time elapsed since it was last
+ * touched and takes a token if one is available. The row lock serialises concurrent attempts
+ * on the same key.
+ */
+@Service
+@ConditionalOnProperty(name = "app.rate-limit.store", havingValue = "postgres")
+public class PostgresRateLimitStore implements RateLimitStore {
+    private static final Logger log = LoggerFactory.getLogger(PostgresRateLimitStore.class);
+
+    // SET expressions see the row as it was before the update
+    private static final String AVAILABLE = "LEAST(?, b.tokens + EXTRACT(EPOCH FROM (NOW() - b.refilled_at)) * ?)";
+    private static final String CONSUME_SQL =
+            "INSERT INTO rate_limit_buckets AS b (bucket_key, tokens, consumed, refilled_at, expires_at) " +
+            "VALUES (?, ?, true, NOW(), NOW() + make_interval(secs => ?)) " +
+            "ON CONFLICT (bucket_key) DO UPDATE SET " +
+            "tokens = " + AVAILABLE + " - CASE WHEN " + AVAILABLE + " >= 1 THEN 1 ELSE 0 END, " +
+            "consumed = " + AVAILABLE + " >= 1, " +
+            "refilled_at = NOW(), " +
+            "expires_at = NOW() + make_interval(secs => ?) " +
+            "RETURNING tokens, consumed";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public PostgresRateLimitStore(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public RateLimitResult tryConsume(String key, int capacity, Duration period) {
+        double periodSeconds = period.toNanos() / 1_000_000_000d;
+        double perSecond = capacity / periodSeconds;
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject(CONSUME_SQL, (rs, i) -> {
+            double tokens = rs.getDouble("tokens");
+            boolean consumed = rs.getBoolean("consumed");
+            long retryAfterNanos = consumed ? 0 : (long) Math.ceil((1 - tokens) / perSecond * 1_000_000_000d);
+            return new RateLimitResult(consumed, capacity, (long) Math.floor(tokens), period, retryAfterNanos);
+        }, key, capacity - 1, periodSeconds,
+                capacity, perSecond, capacity, perSecond, capacity, perSecond,
+                periodSeconds));
+    }
+
+    @Scheduled(fixedDelay = 300_000, initialDelay = 300_000)
+    public void purgeIdleBuckets() {
+        try {
+            Integer deleted = transactionTemplate.execute(status ->
+                    jdbcTemplate.update("DELETE FROM rate_limit_buckets WHERE expires_at < NOW()"));
+            log.debug("Purged {} idle rate limit buckets", deleted);
+        } catch (Exception e) {
+            log.warn("Failed to purge idle rate limit buckets: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,621 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProfileFacetCounts;
+import com.example.demo.entity.UserProfile;
+import com.example.demo.repository.ProfileFacet;
+import com.example.demo.repository.ProfileFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * In-memory inverted index of member tags: per facet, each distinct tag is dictionary-encoded
+ * to an int and maps to a RoaringBitmap of the profile ids carrying it.
+ *
+ * Built in the background once the application is ready by streaming the three collection
+ * tables; until then {@link #page} and {@link #facetCounts} return null and callers use SQL.
+ * UserProfileService reports saves and deletes, which are applied after commit and announced
+ * to other nodes over PgNotificationBus; those reload the profile's tags from the database.
+ * Changes made any other way (direct repository or SQL writes, cascaded deletes, events lost
+ * while the listener was reconnecting) are repaired by a full rebuild, run periodically and
+ * after every listener reconnect. Text queries are not indexed here and always go to SQL.
+ */
+@Service
+@ConditionalOnProperty(name = "app.members.tag-index.enabled", havingValue = "true", matchIfMissing = true)
+public class ProfileTagIndex implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(ProfileTagIndex.class);
+    static final String CHANNEL = "profile_tags";
+    private static final int FETCH_SIZE = 10_000;
+    private static final int FACET_BITS = 2;
+
+    /** Result page as profile ids in index order (ascending id), plus the total match count. */
+    public record IdPage(List<Long> ids, long total) {}
+
+    // Tags of one profile; null means the profile was deleted
+    private record Snapshot(int id, Map<ProfileFacet, List<String>> tags) {}
+
+    /** Dictionary and postings of one facet. Codes of tags nobody carries any more are reused. */
+    private static final class Postings {
+        final Map<String, Integer> codes = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+        final List<RoaringBitmap> bitmaps = new ArrayList<>();
+        final Deque<Integer> freeCodes = new ArrayDeque<>();
+
+        RoaringBitmap get(String value) {
+            Integer code = codes.get(value);
+            return code == null ? null : bitmaps.get(code);
+        }
+
+        int codeFor(String value) {
+            Integer code = codes.get(value);
+            if (code != null) return code;
+            if (!freeCodes.isEmpty()) {
+                code = freeCodes.pop();
+                values.set(code, value);
+            } else {
+                code = values.size();
+                values.add(value);
+                bitmaps.add(new RoaringBitmap());
+            }
+            codes.put(value, code);
+            return code;
+        }
+
+        void remove(int code, int id) {
+            RoaringBitmap bitmap = bitmaps.get(code);
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                codes.remove(values.get(code));
+                values.set(code, null);
+                freeCodes.push(code);
+            }
+        }
+    }
+
+    /**
+     * Open-addressing int -> int[] map (linear probing, backward-shift deletion). Profile ids can
+     * be sparse or large, so memory has to follow the number of profiles, not the largest id.
+     */
+    private static final class TagsById {
+        private int[] keys;
+        private int[][] values;
+        private int size;
+
+        TagsById(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 4 / 3 + 1) - 1) << 1;
+            keys = new int[capacity];
+            values = new int[capacity][];
+        }
+
+        int[] get(int key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return values[slot];
+            }
+            return null;
+        }
+
+        /** A null value removes the key. */
+        void put(int key, int[] value) {
+            if (value == null) {
+                remove(key);
+                return;
+            }
+            if ((size + 1) * 4L > keys.length * 3L) resize(keys.length * 2);
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (values[slot] != null) {
+                if (keys[slot] == key) {
+                    values[slot] = value;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+        }
+
+        private void remove(int key) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (values[slot] != null && keys[slot] != key) slot = (slot + 1) & mask;
+            if (values[slot] == null) return;
+            size--;
+            // Pull later entries of the probe chain into the hole if their home slot allows it
+            int gap = slot;
+            for (int next = (gap + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+                int home = slot(keys[next], mask);
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            values[gap] = null;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            int[][] oldValues = values;
+            keys = new int[capacity];
+            values = new int[capacity][];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(int key, int mask) {
+            int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        long sizeInBytes() {
+            long bytes = 12L * keys.length;
+            for (int[] tags : values) {
+                if (tags != null) bytes += 16 + 4L * tags.length;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Everything a rebuild replaces at once. Besides the postings it keeps each profile's current
+     * tags, encoded as (code << FACET_BITS | facet ordinal) and sorted, so an update only touches
+     * the bitmaps of tags that were added or removed.
+     */
+    private static final class State {
+        final Map<ProfileFacet, Postings> postings = new EnumMap<>(ProfileFacet.class);
+        final RoaringBitmap profiles = new RoaringBitmap();
+        TagsById tagsByProfile = new TagsById(0);
+
+        State() {
+            for (ProfileFacet facet : ProfileFacet.values()) postings.put(facet, new Postings());
+        }
+
+        void apply(Snapshot snapshot) {
+            int id = snapshot.id();
+            int[] previous = tagsByProfile.get(id);
+            int[] next = snapshot.tags() == null ? null : encode(snapshot.tags());
+            int[] before = previous == null ? new int[0] : previous;
+            int[] after = next == null ? new int[0] : next;
+
+            // Both sorted: walk them together, touching only the differences
+            int i = 0, j = 0;
+            while (i < before.length || j < after.length) {
+                if (j == after.length || (i < before.length && before[i] < after[j])) {
+                    postingsOf(before[i]).remove(before[i] >>> FACET_BITS, id);
+                    i++;
+                } else if (i == before.length || after[j] < before[i]) {
+                    postingsOf(after[j]).bitmaps.get(after[j] >>> FACET_BITS).add(id);
+                    j++;
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+
+            if (snapshot.tags() == null) profiles.remove(id);
+            else profiles.add(id);
+            tagsByProfile.put(id, next);
+        }
+
+        private int[] encode(Map<ProfileFacet, List<String>> tags) {
+            int[] encoded = tags.entrySet().stream()
+                    .flatMapToInt(e -> e.getValue().stream()
+                            .mapToInt(v -> postings.get(e.getKey()).codeFor(v) << FACET_BITS | e.getKey().ordinal()))
+                    .distinct().sorted().toArray();
+            return encoded.length == 0 ? null : encoded;
+        }
+
+        private Postings postingsOf(int encoded) {
+            return postings.get(ProfileFacet.values()[encoded & ((1 << FACET_BITS) - 1)]);
+        }
+
+        // After a bulk load into the postings: derive tagsByProfile from them in two passes. Scratch
+        // arrays are indexed by rank among the tagged profiles, so they stay as small as the data.
+        void indexProfiles() {
+            List<RoaringBitmap> all = new ArrayList<>();
+            postings.values().forEach(p -> all.addAll(p.bitmaps));
+            RoaringBitmap tagged = FastAggregation.or(all.iterator());
+            int n = tagged.getCardinality();
+            int[] counts = new int[n];
+            for (RoaringBitmap bitmap : all) bitmap.forEach((int id) -> counts[(int) tagged.rank(id) - 1]++);
+            int[][] byRank = new int[n][];
+            for (int i = 0; i < n; i++) byRank[i] = new int[counts[i]];
+            int[] filled = new int[n];
+            for (ProfileFacet facet : ProfileFacet.values()) {
+                List<RoaringBitmap> bitmaps = postings.get(facet).bitmaps;
+                for (int code = 0; code < bitmaps.size(); code++) {
+                    int encoded = code << FACET_BITS | facet.ordinal();
+                    bitmaps.get(code).forEach((int id) -> {
+                        int rank = (int) tagged.rank(id) - 1;
+                        byRank[rank][filled[rank]++] = encoded;
+                    });
+                }
+            }
+            tagsByProfile = new TagsById(n);
+            int[] rank = {0};
+            tagged.forEach((int id) -> {
+                int[] tags = byRank[rank[0]++];
+                Arrays.sort(tags);
+                tagsByProfile.put(id, tags);
+            });
+        }
+
+        long sizeInBytes() {
+            long bytes = profiles.getLongSizeInBytes();
+            for (Postings p : postings.values()) {
+                for (RoaringBitmap bitmap : p.bitmaps) bytes += bitmap.getLongSizeInBytes();
+            }
+            return bytes + tagsByProfile.sizeInBytes();
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate snapshotTransaction;
+    private final PgNotificationBus notificationBus;
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "");
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "profile-tag-index");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    // Guards everything below; bitmaps are not safe for concurrent reads and writes
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+    private final List<Snapshot> pendingDuringBuild = new ArrayList<>();
+    private boolean building;
+    private volatile boolean ready;
+
+    private final Timer buildTimer;
+
+    public ProfileTagIndex(JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           PgNotificationBus notificationBus,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        // One snapshot across the four table scans of a rebuild
+        this.snapshotTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.notificationBus = notificationBus;
+        Gauge.builder("members.tag_index.profiles", this, index -> index.read(s -> (double) s.profiles.getLongCardinality()))
+                .register(meterRegistry);
+        Gauge.builder("members.tag_index.bytes", this, index -> index.read(s -> (double) s.sizeInBytes()))
+                .register(meterRegistry);
+        this.buildTimer = meterRegistry.timer("members.tag_index.build");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        notificationBus.onReconnect(this::scheduleRebuild);
+        notificationBus.subscribe(CHANNEL, this::onRemoteChange);
+        scheduleRebuild();
+    }
+
+    /** Periodic full rebuild, the backstop for changes no hook or notification reported. */
+    @Scheduled(fixedDelayString = "${app.members.tag-index.rebuild-interval-ms:3600000}",
+               initialDelayString = "${app.members.tag-index.rebuild-interval-ms:3600000}")
+    public void scheduleRebuild() {
+        // Runs on the index's own worker, not on the caller's (scheduler or listener) thread
+        if (rebuildQueued.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    /**
+     * Rebuilds the index from the database while the current one keeps serving. Changes
+     * reported meanwhile are applied to the current index and also replayed onto the new one
+     * before it replaces the old.
+     */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            building = true;
+            pendingDuringBuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        State fresh = new State();
+        long start = System.nanoTime();
+        try {
+            snapshotTransaction.executeWithoutResult(status -> {
+                stream("SELECT id FROM user_profiles", rs -> fresh.profiles.add(toIndexId(rs.getLong(1))));
+                for (ProfileFacet facet : ProfileFacet.values()) {
+                    Postings target = fresh.postings.get(facet);
+                    stream("SELECT user_profile_id, " + facet.column() + " FROM " + facet.table() +
+                           " WHERE " + facet.column() + " IS NOT NULL",
+                           rs -> target.bitmaps.get(target.codeFor(rs.getString(2))).add(toIndexId(rs.getLong(1))));
+                }
+            });
+            fresh.indexProfiles();
+            fresh.profiles.runOptimize();
+            fresh.postings.values().forEach(p -> p.bitmaps.forEach(RoaringBitmap::runOptimize));
+        } catch (RuntimeException e) {
+            // Keeps serving the previous index, or none; callers fall back to SQL
+            log.error("Profile tag index build failed: {}", e.getMessage(), e);
+            lock.writeLock().lock();
+            try {
+                building = false;
+                pendingDuringBuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingDuringBuild.forEach(fresh::apply);
+            pendingDuringBuild.clear();
+            state = fresh;
+            building = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        buildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("Profile tag index built: {} profiles, {} distinct tags",
+                fresh.profiles.getLongCardinality(),
+                fresh.postings.values().stream().mapToInt(p -> p.codes.size()).sum());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Records a saved profile's tags once the current transaction commits. */
+    public void profileSaved(UserProfile profile) {
+        if (profile.getId() == null) return;
+        Map<ProfileFacet, List<String>> tags = new EnumMap<>(ProfileFacet.class);
+        tags.put(ProfileFacet.GOALS, copy(profile.getGoals()));
+        tags.put(ProfileFacet.SKILLS, copy(profile.getSkills()));
+        tags.put(ProfileFacet.INTERESTS, copy(profile.getInterests()));
+        changed(profile.getId(), tags);
+    }
+
+    /** Drops a deleted profile once the current transaction commits. */
+    public void profileDeleted(Long profileId) {
+        changed(profileId, null);
+    }
+
+    /**
+     * Ids of one page of profiles matching the filter's tags, in ascending id order like the SQL
+     * path. Null when the index cannot answer: not built yet, or the filter has a text query.
+     */
+    public IdPage page(ProfileFilter filter, Pageable pageable) {
+        if (!ready || filter.hasQuery()) return null;
+        return read(s -> {
+            RoaringBitmap matched = match(s, filter);
+            long total = matched.getLongCardinality();
+            List<Long> ids = new ArrayList<>();
+            if (pageable.isUnpaged()) {
+                matched.forEach((int id) -> ids.add((long) id));
+            } else if (pageable.getOffset() < total) {
+                PeekableIntIterator it = matched.getIntIterator();
+                it.advanceIfNeeded(matched.select((int) pageable.getOffset()));
+                while (it.hasNext() && ids.size() < pageable.getPageSize()) {
+                    ids.add((long) it.next());
+                }
+            }
+            return new IdPage(ids, total);
+        });
+    }
+
+    /**
+     * Same result as the grouped SQL in UserProfileRepositoryImpl, computed as the intersection
+     * size of each tag's bitmap with the matches. Null when {@link #page} would be.
+     */
+    public ProfileFacetCounts facetCounts(ProfileFilter filter, int limit) {
+        if (!ready || filter.hasQuery()) return null;
+        return read(s -> {
+            RoaringBitmap matched = match(s, filter);
+            boolean everyone = filter.tags().isEmpty();
+            Comparator<ProfileFacetCounts.ValueCount> order = Comparator
+                    .comparingLong(ProfileFacetCounts.ValueCount::count).reversed()
+                    .thenComparing(ProfileFacetCounts.ValueCount::value);
+
+            Map<String, List<ProfileFacetCounts.ValueCount>> facets = new LinkedHashMap<>();
+            for (ProfileFacet facet : ProfileFacet.values()) {
+                Postings p = s.postings.get(facet);
+                // Keeps the top `limit` values, weakest at the head
+                PriorityQueue<ProfileFacetCounts.ValueCount> top = new PriorityQueue<>(limit + 1, order.reversed());
+                for (int code = 0; code < p.bitmaps.size(); code++) {
+                    RoaringBitmap bitmap = p.bitmaps.get(code);
+                    long count = everyone ? bitmap.getLongCardinality() : RoaringBitmap.andCardinality(bitmap, matched);
+                    if (count == 0) continue;
+                    top.add(new ProfileFacetCounts.ValueCount(p.values.get(code), count));
+                    if (top.size() > limit) top.poll();
+                }
+                List<ProfileFacetCounts.ValueCount> values = new ArrayList<>(top);
+                values.sort(order);
+                facets.put(facet.key(), values);
+            }
+            return new ProfileFacetCounts(matched.getLongCardinality(), facets);
+        });
+    }
+
+    // ANY ORs a facet's tag bitmaps, ALL ANDs them (an unknown tag empties the facet); facets AND
+    private static RoaringBitmap match(State s, ProfileFilter filter) {
+        RoaringBitmap result = null;
+        for (Map.Entry<ProfileFacet, ProfileFilter.TagFilter> e : filter.tags().entrySet()) {
+            Postings p = s.postings.get(e.getKey());
+            ProfileFilter.TagFilter tags = e.getValue();
+            List<RoaringBitmap> bitmaps = new ArrayList<>(tags.values().size());
+            boolean missing = false;
+            for (String value : tags.values()) {
+                RoaringBitmap bitmap = p.get(value);
+                if (bitmap == null) missing = true;
+                else bitmaps.add(bitmap);
+            }
+            RoaringBitmap facetMatch;
+            if (bitmaps.isEmpty() || (missing && tags.match() == ProfileFilter.Match.ALL)) {
+                facetMatch = new RoaringBitmap();
+            } else if (bitmaps.size() == 1) {
+                // Copy: the result is modified below and must not alias a posting list
+                facetMatch = bitmaps.get(0).clone();
+            } else if (tags.match() == ProfileFilter.Match.ALL) {
+                facetMatch = FastAggregation.and(bitmaps.iterator());
+            } else {
+                facetMatch = FastAggregation.or(bitmaps.iterator());
+            }
+            if (result == null) result = facetMatch;
+            else result.and(facetMatch);
+            if (result.isEmpty()) break;
+        }
+        return result == null ? s.profiles.clone() : result;
+    }
+
+    private <T> T read(Function<State, T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(state);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void changed(Long profileId, Map<ProfileFacet, List<String>> tags) {
+        if (profileId > Integer.MAX_VALUE) {
+            // Cannot be represented; stop answering rather than serve results missing this profile
+            log.error("Profile id {} does not fit the tag index; disabling it", profileId);
+            ready = false;
+            return;
+        }
+        Snapshot snapshot = new Snapshot((int) (long) profileId, tags);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(snapshot);
+                }
+            });
+        } else {
+            apply(snapshot);
+        }
+        notificationBus.publish(CHANNEL, nodeId + ":" + profileId);
+    }
+
+    // Runs on the listener thread: hand the database read to our own worker
+    private void onRemoteChange(String payload) {
+        int sep = payload.indexOf(':');
+        if (sep < 0 || payload.substring(0, sep).equals(nodeId)) return;
+        long profileId;
+        try {
+            profileId = Long.parseLong(payload.substring(sep + 1));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed profile tag event: {}", payload);
+            return;
+        }
+        worker.execute(() -> {
+            try {
+                apply(load(profileId));
+            } catch (RuntimeException e) {
+                log.warn("Could not reload tags of profile {}: {}", profileId, e.getMessage());
+            }
+        });
+    }
+
+    private Snapshot load(long profileId) {
+        return readOnlyTransaction.execute(status -> {
+            Integer exists = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM user_profiles WHERE id = ?", Integer.class, profileId);
+            if (exists == null || exists == 0) return new Snapshot(toIndexId(profileId), null);
+            Map<ProfileFacet, List<String>> tags = new EnumMap<>(ProfileFacet.class);
+            for (ProfileFacet facet : ProfileFacet.values()) {
+                tags.put(facet, jdbcTemplate.queryForList(
+                        "SELECT DISTINCT " + facet.column() + " FROM " + facet.table() +
+                        " WHERE user_profile_id = ? AND " + facet.column() + " IS NOT NULL",
+                        String.class, profileId));
+            }
+            return new Snapshot(toIndexId(profileId), tags);
+        });
+    }
+
+    private void apply(Snapshot snapshot) {
+        lock.writeLock().lock();
+        try {
+            state.apply(snapshot);
+            if (building) pendingDuringBuild.add(snapshot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void stream(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            // Postgres only streams with a fetch size inside a transaction
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    // Bitmaps hold 32-bit values; ids beyond that fail the build rather than alias
+    private static int toIndexId(long id) {
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Profile id " + id + " does not fit the tag index");
+        }
+        return (int) id;
+    }
+
+    private static List<String> copy(List<String> values) {
+        if (values == null) return List.of();
+        return values.stream().filter(v -> v != null).distinct().toList();
+    }
+
+    @Override
+    public void destroy() {
+        worker.shutdownNow();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+
+/**
+ * Outcome of one rate-limited attempt against a token bucket of {@code limit} tokens that
+ * refills completely over {@code period}.
+ */
+public record RateLimitResult(boolean allowed, int limit, long remaining, Duration period, long retryAfterNanos) {
+
+    /** Seconds until the bucket is full again. */
+    public long resetSeconds() {
+        double missing = Math.max(0, limit - remaining);
+        return (long) Math.ceil(missing * period.toNanos() / limit / 1_000_000_000d);
+    }
+
+    /** Seconds until the next attempt can succeed; 0 when this one was allowed. */
+    public long retryAfterSeconds() {
+        return allowed ? 0 : Math.max(1, (long) Math.ceil(retryAfterNanos / 1_000_000_000d));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+
+/**
+ * Backend holding the token buckets behind RateLimiterService, selected with app.rate-limit.store.
+ * A key always uses the capacity and period it was first seen with.
+ */
+public interface RateLimitStore {
+
+    /** Takes one token from the key's bucket, creating a full bucket on first use. */
+    RateLimitResult tryConsume(String key, int capacity, Duration period);
+}
@@ -1,23 +1,36 @@
 package com.example.demo.service;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Token-bucket rate limiting over the configured RateLimitStore. Keys are "prefix:subject"
+ * (e.g. "login:203.0.113.7"); hits and rejections are counted per prefix.
+ */
 @Service
 public class RateLimiterService {
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final RateLimitStore store;
+    private final MeterRegistry meterRegistry;
 
-    public Bucket resolveBucket(String key, int capacity, Duration refillDuration) {
-        return buckets.computeIfAbsent(key, k -> Bucket.builder()
-                .addLimit(Bandwidth.classic(capacity, Refill.greedy(capacity, refillDuration)))
-                .build());
+    public RateLimiterService(RateLimitStore store, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.meterRegistry = meterRegistry;
     }
-}
 
+    public RateLimitResult tryConsume(String key, int capacity, Duration refillDuration) {
+        RateLimitResult result = store.tryConsume(key, capacity, refillDuration);
+        String prefix = prefixOf(key);
+        meterRegistry.counter("ratelimit.hits", "prefix", prefix).increment();
+        if (!result.allowed()) {
+            meterRegistry.counter("ratelimit.rejections", "prefix", prefix).increment();
+        }
+        return result;
+    }
 
+    private static String prefixOf(String key) {
+        int sep = key.indexOf(':');
+        return sep > 0 ? key.substring(0, sep) : key;
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.demo.service;
 
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.StartupView;
 import com.example.demo.entity.AuthUser;
 import com.example.demo.entity.Startup;
 import com.example.demo.entity.StartupMember;
 import com.example.demo.repository.AuthUserRepository;
 import com.example.demo.repository.StartupRepository;
+import com.example.demo.repository.StartupRepositoryCustom;
 import com.example.demo.repository.StartupMemberRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -32,8 +37,11 @@ public class StartupService {
         return startupRepository.findAll(pageable);
     }
 
-    public Optional<Startup> getStartupById(Long id) {
-        return startupRepository.findById(id);
+    /** Cached as an immutable snapshot, not the entity, so it can be shared between requests. */
+    @Cacheable(cacheNames = CacheConfig.STARTUPS, key = "#id", unless = "#result == null")
+    @Transactional(readOnly = true)
+    public Optional<StartupView> getStartupById(Long id) {
+        return startupRepository.findById(id).map(StartupView::of);
     }
     
     public List<Startup> getUserStartups(Long userId) {
@@ -62,6 +70,7 @@ public class StartupService {
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.STARTUPS, key = "#id")
     public Startup updateStartup(Long id, Startup updatedStartup) {
         Startup existing = startupRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Startup not found"));
@@ -120,6 +129,7 @@ public class StartupService {
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.STARTUPS, key = "#id")
     public void deleteStartup(Long id) {
         startupRepository.deleteById(id);
     }
@@ -176,17 +186,22 @@ public class StartupService {
     }
 
     public Page<Startup> searchStartups(String query, Pageable pageable) {
-        if (query == null || query.isEmpty()) {
+        return searchStartups(new StartupRepositoryCustom.Criteria(query, null, null, null, null), pageable);
+    }
+
+    /** Fuzzy name/tagline and full-text description search combined with filters in one query. */
+    public Page<Startup> searchStartups(StartupRepositoryCustom.Criteria criteria, Pageable pageable) {
+        if (criteria.isEmpty()) {
             return startupRepository.findAll(pageable);
         }
-        return startupRepository.searchStartups(query, pageable);
+        return startupRepository.search(criteria, pageable);
     }
 
     public Page<Startup> getHiringStartups(Pageable pageable) {
-        return startupRepository.findByIsHiring(true, pageable);
+        return startupRepository.search(new StartupRepositoryCustom.Criteria(null, null, null, true, null), pageable);
     }
 
     public Page<Startup> getFundraisingStartups(Pageable pageable) {
-        return startupRepository.findByIsFundraising(true, pageable);
+        return startupRepository.search(new StartupRepositoryCustom.Criteria(null, null, null, null, true), pageable);
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.example.demo.service;
+
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns free-text user input into a Postgres tsquery string for as-you-type search: every word
+ * must match, each as a prefix ("ali eng" finds "Alice, engineer"). Only letters and digits
+ * survive, so the result can never carry tsquery operators from the input.
+ */
+public final class TextSearchQuery {
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int MAX_WORDS = 8;
+
+    private TextSearchQuery() {
+    }
+
+    /**
+     * @return e.g. {@code "ali:* & eng:*"}, or null when the input has no searchable words
+     */
+    public static String prefix(String input) {
+        if (input == null) return null;
+        StringJoiner query = new StringJoiner(" & ");
+        Matcher m = WORD.matcher(input.toLowerCase(Locale.ROOT));
+        int words = 0;
+        while (m.find() && words++ < MAX_WORDS) {
+            query.add(m.group() + ":*");
+        }
+        return words == 0 ? null : query.toString();
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory unread badge counters per (recipient, conversation).
+ *
+ * chat_messages.read_at stays the source of truth: counters are only moved after the
+ * corresponding write commits, rebuilt from the database at startup and reconciled
+ * periodically, so reads never hit the database.
+ *
+ * Every node keeps its own counters: a transaction's increments and resets are published as one
+ * PgNotificationBus event when it commits, applied locally right after commit and by the other
+ * nodes when the event arrives. Events missed while the listener was disconnected are made up by
+ * a rebuild on reconnect.
+ */
+@Service
+public class UnreadCounterService {
+    private static final Logger log = LoggerFactory.getLogger(UnreadCounterService.class);
+
+    static final String CHANNEL = "unread_counters";
+
+    private record Key(long userId, long conversationId) {}
+
+    // One counter change; a delta of 0 means reset
+    private record Op(long userId, long conversationId, long delta) {}
+
+    private static final class Counters {
+        final ConcurrentHashMap<Key, LongAdder> perConversation = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, LongAdder> perUser = new ConcurrentHashMap<>();
+
+        void add(long userId, long conversationId, long delta) {
+            perConversation.computeIfAbsent(new Key(userId, conversationId), k -> new LongAdder()).add(delta);
+            perUser.computeIfAbsent(userId, k -> new LongAdder()).add(delta);
+        }
+
+        void reset(long userId, long conversationId) {
+            LongAdder adder = perConversation.get(new Key(userId, conversationId));
+            if (adder == null) return;
+            long cleared = adder.sumThenReset();
+            if (cleared != 0) {
+                perUser.computeIfAbsent(userId, k -> new LongAdder()).add(-cleared);
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PgNotificationBus notificationBus;
+    private final ObjectMapper objectMapper;
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "");
+    private volatile Counters counters = new Counters();
+
+    public UnreadCounterService(JdbcTemplate jdbcTemplate, PgNotificationBus notificationBus, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationBus = notificationBus;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // The rebuild runs off the listener thread, which must not block
+        notificationBus.onReconnect(() -> CompletableFuture.runAsync(this::rebuild));
+        notificationBus.subscribe(CHANNEL, this::applyRemote);
+        rebuild();
+    }
+
+    /** Counts one new message for the recipient once the surrounding transaction commits. */
+    public void increment(Long recipientId, Long conversationId) {
+        record(new Op(recipientId, conversationId, 1));
+    }
+
+    /** Clears the reader's badge for a conversation once the surrounding transaction commits. */
+    public void reset(Long readerId, Long conversationId) {
+        record(new Op(readerId, conversationId, 0));
+    }
+
+    public long unreadCount(Long userId, Long conversationId) {
+        LongAdder adder = counters.perConversation.get(new Key(userId, conversationId));
+        return adder == null ? 0 : Math.max(0, adder.sum());
+    }
+
+    public long totalUnread(Long userId) {
+        LongAdder adder = counters.perUser.get(userId);
+        return adder == null ? 0 : Math.max(0, adder.sum());
+    }
+
+    /**
+     * Rebuilds all counters from the unread rows (served by idx_chat_messages_unread) and
+     * swaps them in. Increments racing with the rebuild may be off by one until the next run.
+     */
+    @Scheduled(initialDelayString = "${app.chat.unread.reconcile-interval-ms:300000}",
+               fixedDelayString = "${app.chat.unread.reconcile-interval-ms:300000}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            Counters fresh = new Counters();
+            jdbcTemplate.query(
+                    "SELECT recipient_id, conversation_id, COUNT(*) FROM chat_messages " +
+                    "WHERE read_at IS NULL GROUP BY recipient_id, conversation_id",
+                    (RowCallbackHandler) rs -> fresh.add(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+            counters = fresh;
+            log.debug("Rebuilt unread counters for {} conversations in {} ms",
+                    fresh.perConversation.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Unread counter rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    // Collects the transaction's changes; they are published just before and applied just after commit
+    private void record(Op op) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Op> ops = List.of(op);
+            publish(ops);
+            apply(counters, ops);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Op> pending = (List<Op>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Op> ops = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, ops);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    publish(ops);
+                }
+
+                @Override
+                public void afterCommit() {
+                    apply(counters, ops);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UnreadCounterService.this);
+                }
+            });
+            pending = ops;
+        }
+        pending.add(op);
+    }
+
+    // Runs in the committing transaction, so other nodes hear only about committed changes
+    private void publish(List<Op> ops) {
+        ObjectNode event = objectMapper.createObjectNode();
+        event.put("n", nodeId);
+        ArrayNode changes = event.putArray("o");
+        for (Op op : ops) {
+            changes.addArray().add(op.userId()).add(op.conversationId()).add(op.delta());
+        }
+        try {
+            notificationBus.publish(CHANNEL, event.toString());
+        } catch (Exception e) {
+            // Other nodes catch up at their next reconcile; never fail the write over a badge
+            log.warn("Failed to broadcast unread counter changes: {}", e.getMessage());
+        }
+    }
+
+    void applyRemote(String payload) {
+        JsonNode event;
+        try {
+            event = objectMapper.readTree(payload);
+        } catch (Exception e) {
+            log.warn("Dropping malformed unread counter event: {}", e.getMessage());
+            return;
+        }
+        // Changes made on this node were applied after commit already
+        if (nodeId.equals(event.path("n").asText())) return;
+        List<Op> ops = new ArrayList<>();
+        for (JsonNode change : event.path("o")) {
+            ops.add(new Op(change.get(0).asLong(), change.get(1).asLong(), change.get(2).asLong()));
+        }
+        apply(counters, ops);
+    }
+
+    private static void apply(Counters target, List<Op> ops) {
+        for (Op op : ops) {
+            if (op.delta() == 0) target.reset(op.userId(), op.conversationId());
+            else target.add(op.userId(), op.conversationId(), op.delta());
+        }
+    }
+}
@@ -1,19 +1,29 @@
 package com.example.demo.service;
 
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.ProfileFacetCounts;
+import com.example.demo.dto.ProfileView;
 import com.example.demo.entity.AuthUser;
 import com.example.demo.entity.UserProfile;
 import com.example.demo.entity.FounderProfile;
 import com.example.demo.repository.AuthUserRepository;
 import com.example.demo.repository.UserProfileRepository;
 import com.example.demo.repository.FounderProfileRepository;
+import com.example.demo.repository.ProfileFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class UserProfileService {
@@ -27,12 +37,26 @@ public class UserProfileService {
     @Autowired
     private FounderProfileRepository founderProfileRepository;
 
+    // Absent when app.members.tag-index.enabled=false; tag filters then always run in SQL
+    @Autowired(required = false)
+    private ProfileTagIndex profileTagIndex;
+
     @Transactional(readOnly = true)
     public Page<UserProfile> getAllProfiles(Pageable pageable) {
         return userProfileRepository.findAll(pageable);
     }
 
-    public Optional<UserProfile> getProfileById(Long id) {
+    /**
+     * Cached read for display, as an immutable snapshot rather than the entity; load with
+     * {@link #getProfileForUpdate} before changing and saving a profile.
+     */
+    @Cacheable(cacheNames = CacheConfig.PROFILES, key = "#id", unless = "#result == null")
+    @Transactional(readOnly = true)
+    public Optional<ProfileView> getProfileById(Long id) {
+        return userProfileRepository.findById(id).map(ProfileView::of);
+    }
+
+    public Optional<UserProfile> getProfileForUpdate(Long id) {
         return userProfileRepository.findById(id);
     }
     
@@ -58,32 +82,75 @@ public class UserProfileService {
         profile.setFollowers(0);
         profile.setRating(0.0);
         
-        return userProfileRepository.save(profile);
+        UserProfile saved = userProfileRepository.save(profile);
+        if (profileTagIndex != null) profileTagIndex.profileSaved(saved);
+        return saved;
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PROFILES, key = "#profile.id", condition = "#profile.id != null")
     public UserProfile saveProfile(UserProfile profile) {
-        return userProfileRepository.save(profile);
+        UserProfile saved = userProfileRepository.save(profile);
+        if (profileTagIndex != null) profileTagIndex.profileSaved(saved);
+        return saved;
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PROFILES, key = "#id")
     public void deleteProfile(Long id) {
         userProfileRepository.deleteById(id);
+        if (profileTagIndex != null) profileTagIndex.profileDeleted(id);
     }
 
+    /** Ranked full-text search with prefix matching on every word; blank input lists everyone. */
     public Page<UserProfile> searchProfiles(String query, Pageable pageable) {
-        if (query == null || query.isEmpty()) {
+        String tsquery = TextSearchQuery.prefix(query);
+        if (tsquery == null) {
+            return userProfileRepository.findAll(pageable);
+        }
+        return userProfileRepository.searchProfiles(tsquery, pageable);
+    }
+
+    /**
+     * Tag-only filters are answered from ProfileTagIndex once it is built, loading just the
+     * page's profiles; text queries and an unbuilt index go through SQL.
+     */
+    @Transactional(readOnly = true)
+    public Page<UserProfile> searchWithFilters(ProfileFilter filter, Pageable pageable) {
+        if (filter.isEmpty()) {
             return userProfileRepository.findAll(pageable);
         }
-        return userProfileRepository.searchProfiles(query, pageable);
+        ProfileTagIndex.IdPage ids = profileTagIndex == null ? null : profileTagIndex.page(filter, pageable);
+        if (ids != null) {
+            return new PageImpl<>(loadInOrder(ids.ids()), pageable, ids.total());
+        }
+        return userProfileRepository.searchWithFilters(filter, pageable);
     }
 
-    public Page<UserProfile> searchWithFilters(String query, List<String> goals, 
-                                               List<String> skills, List<String> interests, 
-                                               Pageable pageable) {
-        return userProfileRepository.searchWithFilters(query, goals, skills, interests, pageable);
+    /**
+     * Facet counts for the directory. From the tag index they are current and not cached;
+     * the SQL fallback is cached briefly in "filters" (listing TTL) rather than evicted on every
+     * profile write, so its counts may lag writes by up to that TTL.
+     */
+    @Cacheable(cacheNames = "filters", condition = "!#root.target.facetCountsIndexed(#filter)")
+    public ProfileFacetCounts getFacetCounts(ProfileFilter filter, int limit) {
+        ProfileFacetCounts counts = profileTagIndex == null ? null : profileTagIndex.facetCounts(filter, limit);
+        return counts != null ? counts : userProfileRepository.facetCounts(filter, limit);
     }
-    
+
+    public boolean facetCountsIndexed(ProfileFilter filter) {
+        return profileTagIndex != null && profileTagIndex.isReady() && !filter.hasQuery();
+    }
+
+    // findAllById returns rows in no particular order; a profile deleted since the index read is skipped
+    private List<UserProfile> loadInOrder(List<Long> ids) {
+        Map<Long, UserProfile> byId = userProfileRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(UserProfile::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(p -> p != null).toList();
+    }
+
+    // ProfileView.isFounder is derived from the founder profile
+    @CacheEvict(cacheNames = CacheConfig.PROFILES, key = "#userProfileId")
     @Transactional
     public FounderProfile createOrUpdateFounderProfile(Long userProfileId, FounderProfile founderData) {
         UserProfile userProfile = userProfileRepository.findById(userProfileId)
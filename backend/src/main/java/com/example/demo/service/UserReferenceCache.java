@@ -0,0 +1,138 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.AuthUser;
+import com.example.demo.repository.AuthUserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Bounded id <-> username lookup for hot paths (chat) that only need a user's identity, not the
+ * full entity. Entries are immutable snapshots; use AuthUserRepository.getReferenceById when a
+ * foreign key has to be written.
+ *
+ * Evictions are broadcast over PgNotificationBus so a renamed user's old mapping is dropped on
+ * every node; a node whose listener reconnects drops everything, as it may have missed some.
+ */
+@Service
+public class UserReferenceCache {
+    private static final Logger log = LoggerFactory.getLogger(UserReferenceCache.class);
+    static final String CHANNEL = "user_reference_eviction";
+
+    public record UserRef(Long id, String username) {}
+
+    private final AuthUserRepository authUserRepository;
+    private final PgNotificationBus notificationBus;
+    private final ObjectMapper objectMapper;
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "");
+
+    private final Cache<String, UserRef> byUsername = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    private final Cache<Long, UserRef> byId = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    public UserReferenceCache(AuthUserRepository authUserRepository,
+                              PgNotificationBus notificationBus,
+                              ObjectMapper objectMapper) {
+        this.authUserRepository = authUserRepository;
+        this.notificationBus = notificationBus;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void listen() {
+        notificationBus.onReconnect(this::clear);
+        notificationBus.subscribe(CHANNEL, this::applyRemote);
+    }
+
+    public Optional<UserRef> findByUsername(String username) {
+        if (username == null) return Optional.empty();
+        UserRef cached = byUsername.getIfPresent(username);
+        if (cached != null) return Optional.of(cached);
+        return authUserRepository.findByUsername(username).map(this::remember);
+    }
+
+    public Optional<UserRef> findById(Long id) {
+        if (id == null) return Optional.empty();
+        UserRef cached = byId.getIfPresent(id);
+        if (cached != null) return Optional.of(cached);
+        return authUserRepository.findById(id).map(this::remember);
+    }
+
+    public UserRef requireByUsername(String username) {
+        return findByUsername(username).orElseThrow(() -> new NoSuchElementException("Unknown user: " + username));
+    }
+
+    public UserRef requireById(Long id) {
+        return findById(id).orElseThrow(() -> new NoSuchElementException("Unknown user id: " + id));
+    }
+
+    /**
+     * Drops both mappings for a user on every node; call after a username change or account
+     * deletion. Inside a transaction, other nodes evict once it commits.
+     */
+    public void evict(Long id, String username) {
+        evictLocally(id, username);
+        ObjectNode event = objectMapper.createObjectNode();
+        event.put("n", nodeId);
+        if (id != null) event.put("i", id);
+        if (username != null) event.put("u", username);
+        try {
+            notificationBus.publish(CHANNEL, event.toString());
+        } catch (Exception e) {
+            // Other nodes fall back to expireAfterWrite
+            log.warn("Failed to broadcast user reference eviction for {}: {}", id, e.getMessage());
+        }
+    }
+
+    void applyRemote(String payload) {
+        JsonNode event;
+        try {
+            event = objectMapper.readTree(payload);
+        } catch (Exception e) {
+            log.warn("Dropping malformed user reference eviction: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(event.path("n").asText())) return;
+        evictLocally(event.hasNonNull("i") ? event.get("i").asLong() : null,
+                     event.hasNonNull("u") ? event.get("u").asText() : null);
+    }
+
+    private void clear() {
+        byUsername.invalidateAll();
+        byId.invalidateAll();
+    }
+
+    private void evictLocally(Long id, String username) {
+        if (username != null) byUsername.invalidate(username);
+        if (id != null) {
+            UserRef previous = byId.getIfPresent(id);
+            if (previous != null) byUsername.invalidate(previous.username());
+            byId.invalidate(id);
+        }
+    }
+
+    private UserRef remember(AuthUser user) {
+        UserRef ref = new UserRef(user.getId(), user.getUsername());
+        byUsername.put(ref.username(), ref);
+        byId.put(ref.id(), ref);
+        return ref;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.AuthUserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Short-lived cache of whether a user id may still authenticate. Access tokens are trusted for
+ * identity and role, so this is the only per-request account check: the account must be enabled
+ * and the token must carry the user's current token generation. A disabled account or a
+ * "log out everywhere" takes effect within the TTL, or immediately on this node after
+ * {@link #evictAfterCommit}.
+ */
+@Service
+public class UserStatusCache {
+
+    private record Status(boolean enabled, int tokenGeneration) {}
+
+    private static final Status MISSING = new Status(false, Integer.MAX_VALUE);
+
+    private final AuthUserRepository authUserRepository;
+    private final Cache<Long, Status> statuses;
+
+    public UserStatusCache(AuthUserRepository authUserRepository,
+                           @Value("${app.auth.user-status-ttl-seconds:30}") long ttlSeconds) {
+        this.authUserRepository = authUserRepository;
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public boolean isActive(Long userId) {
+        return status(userId).enabled();
+    }
+
+    /** True if the user is enabled and a token of this generation has not been revoked. */
+    public boolean accepts(Long userId, int tokenGeneration) {
+        Status status = status(userId);
+        return status.enabled() && tokenGeneration >= status.tokenGeneration();
+    }
+
+    public int tokenGeneration(Long userId) {
+        return status(userId).tokenGeneration();
+    }
+
+    public void evict(Long userId) {
+        statuses.invalidate(userId);
+    }
+
+    // Evicting before commit would let a concurrent request re-cache the old status
+    public void evictAfterCommit(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        } else {
+            evict(userId);
+        }
+    }
+
+    private Status status(Long userId) {
+        return statuses.get(userId, id -> authUserRepository.findTokenStatusById(id)
+                .map(s -> new Status(Boolean.TRUE.equals(s.getEnabled()),
+                        s.getTokenGeneration() != null ? s.getTokenGeneration() : 0))
+                .orElse(MISSING));
+    }
+}
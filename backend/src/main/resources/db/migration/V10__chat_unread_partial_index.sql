@@ -0,0 +1,3 @@
+-- Unread messages are a small, hot subset of chat_messages; index only those rows
+-- for bulk mark-as-read and unread counts.
+CREATE INDEX IF NOT EXISTS idx_chat_messages_unread ON chat_messages(conversation_id, recipient_id) WHERE read_at IS NULL;
@@ -0,0 +1,24 @@
+-- Multi-node WebSocket delivery (app.websocket.broker.mode=postgres)
+
+-- Live backend nodes; rows whose heartbeat is stale are ignored and reaped
+CREATE TABLE IF NOT EXISTS ws_nodes (
+  node_id VARCHAR(64) PRIMARY KEY,
+  last_seen TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Which nodes currently hold STOMP sessions for a user
+CREATE TABLE IF NOT EXISTS ws_user_nodes (
+  username VARCHAR(255) NOT NULL,
+  node_id VARCHAR(64) NOT NULL REFERENCES ws_nodes(node_id) ON DELETE CASCADE,
+  sessions INT NOT NULL DEFAULT 1,
+  PRIMARY KEY (username, node_id)
+);
+CREATE INDEX IF NOT EXISTS idx_ws_user_nodes_node ON ws_user_nodes(node_id);
+
+-- NOTIFY payloads are capped at 8000 bytes; larger ones are parked here and sent by id
+CREATE TABLE IF NOT EXISTS cluster_notify_payloads (
+  id BIGSERIAL PRIMARY KEY,
+  payload TEXT NOT NULL,
+  created_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+CREATE INDEX IF NOT EXISTS idx_cluster_notify_payloads_created ON cluster_notify_payloads(created_at);
@@ -0,0 +1,4 @@
+-- Client-assigned idempotency key for chat sends; retries of the same send are ignored
+ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS client_message_id VARCHAR(64);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_chat_messages_sender_client_id
+  ON chat_messages(sender_id, client_message_id) WHERE client_message_id IS NOT NULL;
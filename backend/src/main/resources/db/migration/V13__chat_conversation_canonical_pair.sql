@@ -0,0 +1,28 @@
+-- Store each conversation once, as (min user id, max user id), and enforce it.
+
+-- 1. Fold duplicate conversations for the same pair into the oldest one
+CREATE TEMP TABLE chat_conversation_dupes ON COMMIT DROP AS
+SELECT id, MIN(id) OVER (PARTITION BY LEAST(user1_id, user2_id), GREATEST(user1_id, user2_id)) AS keep_id,
+       MAX(updated_at) OVER (PARTITION BY LEAST(user1_id, user2_id), GREATEST(user1_id, user2_id)) AS max_updated
+FROM chat_conversations;
+
+UPDATE chat_messages m SET conversation_id = d.keep_id
+FROM chat_conversation_dupes d
+WHERE m.conversation_id = d.id AND d.id <> d.keep_id;
+
+UPDATE chat_conversations c SET updated_at = d.max_updated
+FROM chat_conversation_dupes d
+WHERE c.id = d.id AND d.id = d.keep_id AND c.updated_at < d.max_updated;
+
+DELETE FROM chat_conversations c
+USING chat_conversation_dupes d
+WHERE c.id = d.id AND d.id <> d.keep_id;
+
+-- 2. Canonical participant order
+UPDATE chat_conversations SET user1_id = user2_id, user2_id = user1_id WHERE user1_id > user2_id;
+
+ALTER TABLE chat_conversations ADD CONSTRAINT chk_chat_conversations_ordered CHECK (user1_id <= user2_id);
+
+-- 3. One row per pair; the unique index replaces the old non-unique one
+CREATE UNIQUE INDEX IF NOT EXISTS uq_chat_conversations_pair ON chat_conversations(user1_id, user2_id);
+DROP INDEX IF EXISTS idx_chat_conversations_users;
@@ -0,0 +1,7 @@
+-- Set-based revocation: UPDATE refresh_tokens SET revoked = true WHERE user_id = ? AND revoked = false
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_revoked ON refresh_tokens(user_id, revoked);
+-- Covered by the composite index above
+DROP INDEX IF EXISTS idx_refresh_tokens_user_id;
+
+-- Bumped on "log out everywhere"; access tokens carry the generation they were issued under
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_generation INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,2 @@
+-- ExpiredTokenReaper scans every token table by expires_at; this was the only one without an index
+CREATE INDEX IF NOT EXISTS idx_email_change_expires_at ON email_change_requests(expires_at);
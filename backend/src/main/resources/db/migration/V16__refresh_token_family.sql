@@ -0,0 +1,5 @@
+-- Refresh tokens descending from one login share a family; reuse of a rotated token revokes it
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS family_id VARCHAR(64);
+UPDATE refresh_tokens SET family_id = token_id WHERE family_id IS NULL;
+ALTER TABLE refresh_tokens ALTER COLUMN family_id SET NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_family ON refresh_tokens(family_id) WHERE revoked = false;
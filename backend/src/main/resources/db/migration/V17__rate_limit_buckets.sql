@@ -0,0 +1,11 @@
+-- Shared token buckets for RateLimiterService (app.rate-limit.store=postgres).
+-- UNLOGGED: losing buckets on a crash only resets limits, and skipping WAL keeps the hot upsert cheap.
+CREATE UNLOGGED TABLE IF NOT EXISTS rate_limit_buckets (
+    bucket_key VARCHAR(255) PRIMARY KEY,
+    tokens DOUBLE PRECISION NOT NULL,
+    consumed BOOLEAN NOT NULL,
+    refilled_at TIMESTAMP NOT NULL,
+    -- After this the bucket would be full again, so the row can be dropped
+    expires_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_rate_limit_buckets_expires_at ON rate_limit_buckets(expires_at);
@@ -0,0 +1,2 @@
+-- No-op: cache invalidation events are applied in NOTIFY (commit) order and need no version sequence
+SELECT 1;
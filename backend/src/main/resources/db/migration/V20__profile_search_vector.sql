@@ -0,0 +1,95 @@
+-- Full-text search over member profiles (UserProfileRepository.searchProfiles).
+-- search_vector is kept current by triggers, since skills, interests and the About lists live in
+-- separate collection tables and cannot feed a generated column. The 'simple' configuration is
+-- used throughout: profiles are multilingual, and prefix queries cover inflected forms.
+
+-- Columns and tables normally created by Hibernate, so the triggers below can attach on any schema
+ALTER TABLE user_profiles ADD COLUMN IF NOT EXISTS short_description VARCHAR(1000);
+ALTER TABLE user_profiles ADD COLUMN IF NOT EXISTS looking_for VARCHAR(500);
+ALTER TABLE user_profiles ADD COLUMN IF NOT EXISTS offering VARCHAR(500);
+CREATE TABLE IF NOT EXISTS user_profile_goals (
+    user_profile_id BIGINT NOT NULL REFERENCES user_profiles(id) ON DELETE CASCADE,
+    goal VARCHAR(255)
+);
+CREATE TABLE IF NOT EXISTS user_profile_skills (
+    user_profile_id BIGINT NOT NULL REFERENCES user_profiles(id) ON DELETE CASCADE,
+    skill VARCHAR(255)
+);
+CREATE TABLE IF NOT EXISTS user_profile_interests (
+    user_profile_id BIGINT NOT NULL REFERENCES user_profiles(id) ON DELETE CASCADE,
+    interest VARCHAR(255)
+);
+CREATE TABLE IF NOT EXISTS user_profile_industries (
+    user_profile_id BIGINT NOT NULL REFERENCES user_profiles(id) ON DELETE CASCADE,
+    industry VARCHAR(255)
+);
+CREATE TABLE IF NOT EXISTS user_profile_languages (
+    user_profile_id BIGINT NOT NULL REFERENCES user_profiles(id) ON DELETE CASCADE,
+    language VARCHAR(255)
+);
+
+ALTER TABLE user_profiles ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+-- Weights: A name, B tagline and skills, C interests, industries and location, D free-text About
+CREATE OR REPLACE FUNCTION user_profile_search_document(p_id BIGINT, p_name TEXT, p_tagline TEXT, p_location TEXT,
+                                                        p_short_description TEXT, p_looking_for TEXT, p_offering TEXT)
+RETURNS tsvector LANGUAGE sql STABLE AS $$
+    SELECT setweight(to_tsvector('simple', coalesce(p_name, '')), 'A')
+        || setweight(to_tsvector('simple', coalesce(p_tagline, '') || ' ' ||
+               coalesce((SELECT string_agg(skill, ' ') FROM user_profile_skills WHERE user_profile_id = p_id), '')), 'B')
+        || setweight(to_tsvector('simple', coalesce(p_location, '') || ' ' ||
+               coalesce((SELECT string_agg(interest, ' ') FROM user_profile_interests WHERE user_profile_id = p_id), '') || ' ' ||
+               coalesce((SELECT string_agg(industry, ' ') FROM user_profile_industries WHERE user_profile_id = p_id), '')), 'C')
+        || setweight(to_tsvector('simple', concat_ws(' ', p_short_description, p_looking_for, p_offering,
+               (SELECT string_agg(language, ' ') FROM user_profile_languages WHERE user_profile_id = p_id))), 'D')
+$$;
+
+CREATE OR REPLACE FUNCTION user_profiles_search_vector_trigger() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.search_vector := user_profile_search_document(NEW.id, NEW.name, NEW.tagline, NEW.location,
+                                                      NEW.short_description, NEW.looking_for, NEW.offering);
+    RETURN NEW;
+END
+$$;
+
+DROP TRIGGER IF EXISTS trg_user_profiles_search_vector ON user_profiles;
+CREATE TRIGGER trg_user_profiles_search_vector
+    BEFORE INSERT OR UPDATE OF name, tagline, location, short_description, looking_for, offering ON user_profiles
+    FOR EACH ROW EXECUTE FUNCTION user_profiles_search_vector_trigger();
+
+-- A change to a collection row rebuilds the owning profile's vector
+CREATE OR REPLACE FUNCTION user_profile_collection_search_trigger() RETURNS trigger LANGUAGE plpgsql AS $$
+DECLARE
+    profile_id BIGINT := CASE WHEN TG_OP = 'DELETE' THEN OLD.user_profile_id ELSE NEW.user_profile_id END;
+BEGIN
+    UPDATE user_profiles up
+    SET search_vector = user_profile_search_document(up.id, up.name, up.tagline, up.location,
+                                                     up.short_description, up.looking_for, up.offering)
+    WHERE up.id = profile_id;
+    RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS trg_user_profile_skills_search ON user_profile_skills;
+CREATE TRIGGER trg_user_profile_skills_search AFTER INSERT OR UPDATE OR DELETE ON user_profile_skills
+    FOR EACH ROW EXECUTE FUNCTION user_profile_collection_search_trigger();
+DROP TRIGGER IF EXISTS trg_user_profile_interests_search ON user_profile_interests;
+CREATE TRIGGER trg_user_profile_interests_search AFTER INSERT OR UPDATE OR DELETE ON user_profile_interests
+    FOR EACH ROW EXECUTE FUNCTION user_profile_collection_search_trigger();
+DROP TRIGGER IF EXISTS trg_user_profile_industries_search ON user_profile_industries;
+CREATE TRIGGER trg_user_profile_industries_search AFTER INSERT OR UPDATE OR DELETE ON user_profile_industries
+    FOR EACH ROW EXECUTE FUNCTION user_profile_collection_search_trigger();
+DROP TRIGGER IF EXISTS trg_user_profile_languages_search ON user_profile_languages;
+CREATE TRIGGER trg_user_profile_languages_search AFTER INSERT OR UPDATE OR DELETE ON user_profile_languages
+    FOR EACH ROW EXECUTE FUNCTION user_profile_collection_search_trigger();
+
+-- Backfill, then index
+UPDATE user_profiles SET search_vector = user_profile_search_document(id, name, tagline, location,
+                                                                      short_description, looking_for, offering);
+CREATE INDEX IF NOT EXISTS idx_user_profiles_search_vector ON user_profiles USING GIN (search_vector);
+-- Collection lookups by owner (the trigger's subqueries, EAGER collection loads)
+CREATE INDEX IF NOT EXISTS idx_user_profile_skills_profile ON user_profile_skills(user_profile_id);
+CREATE INDEX IF NOT EXISTS idx_user_profile_interests_profile ON user_profile_interests(user_profile_id);
+CREATE INDEX IF NOT EXISTS idx_user_profile_goals_profile ON user_profile_goals(user_profile_id);
+CREATE INDEX IF NOT EXISTS idx_user_profile_industries_profile ON user_profile_industries(user_profile_id);
+CREATE INDEX IF NOT EXISTS idx_user_profile_languages_profile ON user_profile_languages(user_profile_id);
@@ -0,0 +1,15 @@
+-- Startup search (StartupRepositoryImpl): fuzzy, typo-tolerant matching on name and tagline through
+-- pg_trgm, full-text matching on the long description, and indexed filters
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_startups_name_trgm ON startups USING GIN (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_startups_tagline_trgm ON startups USING GIN (tagline gin_trgm_ops);
+
+ALTER TABLE startups ADD COLUMN IF NOT EXISTS description_vector tsvector
+    GENERATED ALWAYS AS (to_tsvector('english', coalesce(description, ''))) STORED;
+CREATE INDEX IF NOT EXISTS idx_startups_description_vector ON startups USING GIN (description_vector);
+
+CREATE INDEX IF NOT EXISTS idx_startups_stage ON startups(stage);
+CREATE INDEX IF NOT EXISTS idx_startups_industry ON startups(industry);
+CREATE INDEX IF NOT EXISTS idx_startups_hiring ON startups(id) WHERE is_hiring;
+CREATE INDEX IF NOT EXISTS idx_startups_fundraising ON startups(id) WHERE is_fundraising;
@@ -0,0 +1,5 @@
+-- Tag-first indexes for the members directory filters (ProfileFilterQuery): EXISTS semi-joins
+-- and ALL-tags grouping both start from the tag value and read the owning profile id from the index
+CREATE INDEX IF NOT EXISTS idx_user_profile_goals_goal ON user_profile_goals(goal, user_profile_id);
+CREATE INDEX IF NOT EXISTS idx_user_profile_skills_skill ON user_profile_skills(skill, user_profile_id);
+CREATE INDEX IF NOT EXISTS idx_user_profile_interests_interest ON user_profile_interests(interest, user_profile_id);
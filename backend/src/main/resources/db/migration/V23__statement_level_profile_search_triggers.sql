@@ -0,0 +1,51 @@
+-- Collection changes rebuild search_vector once per affected profile and statement, not once per row.
+-- Hibernate rewrites a collection as one DELETE plus batched INSERTs (reWriteBatchedInserts turns
+-- those into multi-row statements), so a save with N tags now recomputes a profile's vector a
+-- handful of times instead of about 2N. Transition tables are only allowed on single-event
+-- triggers, hence one trigger per operation.
+
+CREATE OR REPLACE FUNCTION user_profile_collection_search_stmt_trigger() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        UPDATE user_profiles up
+        SET search_vector = user_profile_search_document(up.id, up.name, up.tagline, up.location,
+                                                         up.short_description, up.looking_for, up.offering)
+        WHERE up.id IN (SELECT user_profile_id FROM new_rows);
+    ELSIF TG_OP = 'DELETE' THEN
+        UPDATE user_profiles up
+        SET search_vector = user_profile_search_document(up.id, up.name, up.tagline, up.location,
+                                                         up.short_description, up.looking_for, up.offering)
+        WHERE up.id IN (SELECT user_profile_id FROM old_rows);
+    ELSE
+        UPDATE user_profiles up
+        SET search_vector = user_profile_search_document(up.id, up.name, up.tagline, up.location,
+                                                         up.short_description, up.looking_for, up.offering)
+        WHERE up.id IN (SELECT user_profile_id FROM new_rows UNION SELECT user_profile_id FROM old_rows);
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+DO $$
+DECLARE
+    t TEXT;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['skills', 'interests', 'industries', 'languages'] LOOP
+        EXECUTE format('DROP TRIGGER IF EXISTS trg_user_profile_%s_search ON user_profile_%s', t, t);
+        EXECUTE format('DROP TRIGGER IF EXISTS trg_user_profile_%s_search_ins ON user_profile_%s', t, t);
+        EXECUTE format('DROP TRIGGER IF EXISTS trg_user_profile_%s_search_upd ON user_profile_%s', t, t);
+        EXECUTE format('DROP TRIGGER IF EXISTS trg_user_profile_%s_search_del ON user_profile_%s', t, t);
+        EXECUTE format('CREATE TRIGGER trg_user_profile_%s_search_ins AFTER INSERT ON user_profile_%s '
+                       'REFERENCING NEW TABLE AS new_rows '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION user_profile_collection_search_stmt_trigger()', t, t);
+        EXECUTE format('CREATE TRIGGER trg_user_profile_%s_search_upd AFTER UPDATE ON user_profile_%s '
+                       'REFERENCING NEW TABLE AS new_rows OLD TABLE AS old_rows '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION user_profile_collection_search_stmt_trigger()', t, t);
+        EXECUTE format('CREATE TRIGGER trg_user_profile_%s_search_del AFTER DELETE ON user_profile_%s '
+                       'REFERENCING OLD TABLE AS old_rows '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION user_profile_collection_search_stmt_trigger()', t, t);
+    END LOOP;
+END
+$$;
+
+DROP FUNCTION IF EXISTS user_profile_collection_search_trigger();
@@ -0,0 +1,2 @@
+-- Bucket keys embed caller input ("forgot:" + email), which can exceed 255 characters
+ALTER TABLE rate_limit_buckets ALTER COLUMN bucket_key TYPE TEXT;
@@ -0,0 +1,2 @@
+-- When a refresh token was rotated; reuse within a short grace window is a concurrent refresh, not a replay
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS rotated_at TIMESTAMP;
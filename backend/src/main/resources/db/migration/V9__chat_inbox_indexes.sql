@@ -0,0 +1,4 @@
+-- Inbox listing: one index per participant column so both sides of the
+-- (user1_id = ? OR user2_id = ?) predicate can be walked in updated_at order.
+CREATE INDEX IF NOT EXISTS idx_chat_conversations_user1_updated ON chat_conversations(user1_id, updated_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_chat_conversations_user2_updated ON chat_conversations(user2_id, updated_at DESC, id DESC);
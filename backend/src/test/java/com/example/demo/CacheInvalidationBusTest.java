@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import com.example.demo.entity.AuthUser;
+import com.example.demo.entity.Startup;
+import com.example.demo.repository.AuthUserRepository;
+import com.example.demo.service.StartupService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two application contexts against one database, standing in for two backend nodes.
+ */
+class CacheInvalidationBusTest {
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    private AuthUser founder;
+    private Long startupId;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeA != null) nodeA.close();
+        if (nodeB != null) nodeB.close();
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(DemoApplication.class)
+                .properties("server.port=0", "spring.jmx.enabled=false")
+                .run();
+    }
+
+    @BeforeEach
+    void createStartup() {
+        String name = "cache-" + UUID.randomUUID().toString().substring(0, 8);
+        AuthUser u = new AuthUser();
+        u.setUsername(name);
+        u.setEmail(name + "@example.com");
+        u.setPassword("x");
+        u.setFirstName("Cache");
+        u.setLastName("Test");
+        founder = nodeA.getBean(AuthUserRepository.class).save(u);
+
+        Startup startup = new Startup();
+        startup.setName("Before " + name);
+        startupId = nodeA.getBean(StartupService.class).createStartup(startup, founder.getId()).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        StartupService startups = nodeA.getBean(StartupService.class);
+        if (startups.getStartupById(startupId).isPresent()) startups.deleteStartup(startupId);
+        nodeA.getBean(AuthUserRepository.class).deleteById(founder.getId());
+    }
+
+    @Test
+    void updateOnOneNode_evictsEntryCachedOnTheOther() throws Exception {
+        StartupService a = nodeA.getBean(StartupService.class);
+        StartupService b = nodeB.getBean(StartupService.class);
+        String before = b.getStartupById(startupId).orElseThrow().name();
+
+        Startup changes = new Startup();
+        changes.setName("After " + startupId);
+        a.updateStartup(startupId, changes);
+
+        assertTrue(eventually(() -> ("After " + startupId).equals(b.getStartupById(startupId).orElseThrow().name())),
+                "node B still serves '" + before + "'");
+    }
+
+    @Test
+    void deleteOnOneNode_evictsEntryCachedOnTheOther() throws Exception {
+        StartupService a = nodeA.getBean(StartupService.class);
+        StartupService b = nodeB.getBean(StartupService.class);
+        assertTrue(b.getStartupById(startupId).isPresent());
+
+        a.deleteStartup(startupId);
+
+        assertTrue(eventually(() -> b.getStartupById(startupId).isEmpty()));
+        assertEquals(false, a.getStartupById(startupId).isPresent());
+    }
+
+    private static boolean eventually(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.get()) return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+}
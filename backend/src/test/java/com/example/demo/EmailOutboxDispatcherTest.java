@@ -0,0 +1,88 @@
+package com.example.demo;
+
+import com.example.demo.service.EmailOutboxDispatcher;
+import com.example.demo.service.EmailService;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        // Drive the dispatcher by hand
+        "app.mail.outbox.poll-interval-ms=3600000"
+})
+class EmailOutboxDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final String tag = UUID.randomUUID().toString().substring(0, 8);
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update("DELETE FROM email_outbox WHERE subject LIKE ?", "%" + tag + "%"));
+    }
+
+    @Test
+    void queuedEmailsAreDeliveredInOneBatch() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            emailService.sendEmail("user" + i + "@example.com", "Outbox " + tag + " #" + i, "<p>Hello</p>");
+        }
+
+        dispatcher.dispatch();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(3, Arrays.stream(received).filter(m -> subjectOf(m).contains(tag)).count());
+        Integer sent = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM email_outbox WHERE subject LIKE ? AND status = 'SENT'", Integer.class, "%" + tag + "%");
+        assertEquals(3, sent);
+    }
+
+    @Test
+    void emailQueuedInRolledBackTransaction_isNeverSent() {
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            emailService.sendEmail("rollback@example.com", "Outbox " + tag + " rollback", "<p>Hello</p>");
+            throw new IllegalStateException("rollback");
+        }));
+
+        dispatcher.dispatch();
+
+        assertTrue(Arrays.stream(greenMail.getReceivedMessages()).noneMatch(m -> subjectOf(m).contains(tag)));
+    }
+
+    private static String subjectOf(MimeMessage message) {
+        try {
+            return message.getSubject();
+        } catch (Exception e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo;
+
+import com.example.demo.dto.ProfileFacetCounts;
+import com.example.demo.dto.ProfileFacetCounts.ValueCount;
+import com.example.demo.repository.AuthUserRepository;
+import com.example.demo.repository.ProfileFacet;
+import com.example.demo.repository.ProfileFilter;
+import com.example.demo.repository.ProfileFilter.Match;
+import com.example.demo.repository.UserProfileRepository;
+import com.example.demo.service.ProfileTagIndex;
+import com.example.demo.service.UserProfileService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Facet counts (GET /api/members/facets) against hand-counted fixtures, on both the SQL path and
+ * the tag index. A profile listing a tag twice still counts once for that tag.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProfileFacetCountsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProfileTagIndex index;
+
+    @Autowired
+    private UserProfileService userProfileService;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private AuthUserRepository authUserRepository;
+
+    private ProfileFixtures fixtures;
+
+    @BeforeEach
+    void createProfiles() {
+        fixtures = new ProfileFixtures("facets", userProfileService, authUserRepository);
+        index.rebuild();
+        // "a" lists s0 and "c" lists i0 twice
+        fixtures.create("a", fixtures.tags("g0"), fixtures.tags("s0", "s0", "s1"), fixtures.tags("i0"));
+        fixtures.create("b", fixtures.tags("g0", "g1"), fixtures.tags("s0"), fixtures.tags());
+        fixtures.create("c", fixtures.tags("g1"), fixtures.tags("s1"), fixtures.tags("i0", "i0"));
+        fixtures.create("d", fixtures.tags("g0"), fixtures.tags("s0"), fixtures.tags());
+    }
+
+    @AfterEach
+    void deleteProfiles() {
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void anyGoal_countsEveryTagOncePerProfile() throws Exception {
+        ProfileFilter filter = ProfileFilter.builder().tags(ProfileFacet.GOALS, fixtures.tags("g0", "g1"), Match.ANY).build();
+        ProfileFacetCounts expected = counts(4,
+                List.of(count("g0", 3), count("g1", 2)),
+                List.of(count("s0", 3), count("s1", 2)),
+                List.of(count("i0", 2)));
+        assertBothPaths(expected, filter, 20);
+
+        mockMvc.perform(get("/api/members/facets").param("goals", fixtures.tag("g0"), fixtures.tag("g1")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(4))
+                .andExpect(jsonPath("$.facets.goals[0].value").value(fixtures.tag("g0")))
+                .andExpect(jsonPath("$.facets.goals[0].count").value(3))
+                .andExpect(jsonPath("$.facets.goals[1].count").value(2))
+                .andExpect(jsonPath("$.facets.skills[0].value").value(fixtures.tag("s0")))
+                .andExpect(jsonPath("$.facets.skills[0].count").value(3))
+                .andExpect(jsonPath("$.facets.interests[0].value").value(fixtures.tag("i0")))
+                .andExpect(jsonPath("$.facets.interests[0].count").value(2))
+                .andExpect(jsonPath("$.facets.interests.length()").value(1));
+    }
+
+    @Test
+    void allSkills_countsOnlyMatchedProfiles() {
+        ProfileFilter filter = ProfileFilter.builder().tags(ProfileFacet.SKILLS, fixtures.tags("s0"), Match.ALL).build();
+        assertBothPaths(counts(3,
+                List.of(count("g0", 3), count("g1", 1)),
+                List.of(count("s0", 3), count("s1", 1)),
+                List.of(count("i0", 1))), filter, 20);
+    }
+
+    @Test
+    void limit_keepsMostCommonValuePerFacet() throws Exception {
+        ProfileFilter filter = ProfileFilter.builder().tags(ProfileFacet.GOALS, fixtures.tags("g0", "g1"), Match.ANY).build();
+        assertBothPaths(counts(4,
+                List.of(count("g0", 3)),
+                List.of(count("s0", 3)),
+                List.of(count("i0", 2))), filter, 1);
+
+        mockMvc.perform(get("/api/members/facets").param("goals", fixtures.tag("g0"), fixtures.tag("g1")).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.facets.skills.length()").value(1));
+    }
+
+    private void assertBothPaths(ProfileFacetCounts expected, ProfileFilter filter, int limit) {
+        assertEquals(expected, userProfileRepository.facetCounts(filter, limit), "sql");
+        assertTrue(index.isReady());
+        assertEquals(expected, index.facetCounts(filter, limit), "index");
+    }
+
+    private ProfileFacetCounts counts(long total, List<ValueCount> goals, List<ValueCount> skills,
+                                      List<ValueCount> interests) {
+        Map<String, List<ValueCount>> facets = new LinkedHashMap<>();
+        facets.put(ProfileFacet.GOALS.key(), goals);
+        facets.put(ProfileFacet.SKILLS.key(), skills);
+        facets.put(ProfileFacet.INTERESTS.key(), interests);
+        return new ProfileFacetCounts(total, facets);
+    }
+
+    private ValueCount count(String suffix, long n) {
+        return new ValueCount(fixtures.tag(suffix), n);
+    }
+}
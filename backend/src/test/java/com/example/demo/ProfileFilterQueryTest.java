@@ -0,0 +1,151 @@
+package com.example.demo;
+
+import com.example.demo.entity.UserProfile;
+import com.example.demo.repository.AuthUserRepository;
+import com.example.demo.repository.ProfileFacet;
+import com.example.demo.repository.ProfileFilter;
+import com.example.demo.repository.ProfileFilter.Match;
+import com.example.demo.repository.ProfileFilterQuery;
+import com.example.demo.service.UserProfileService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ProfileFilterQueryTest {
+
+    @Autowired
+    private UserProfileService userProfileService;
+
+    @Autowired
+    private AuthUserRepository authUserRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ProfileFixtures fixtures;
+    private UserProfile everyTag;
+    private UserProfile oneTag;
+
+    @BeforeEach
+    void createProfiles() {
+        fixtures = new ProfileFixtures("filter", userProfileService, authUserRepository);
+        // 3 goals x 3 skills x 3 interests: 27 rows per profile under the old triple join
+        everyTag = fixtures.create("every", fixtures.tags("g", 3), fixtures.tags("s", 3), fixtures.tags("i", 3));
+        oneTag = fixtures.create("one", fixtures.tags("g", 1), fixtures.tags("s", 1), List.of());
+    }
+
+    @AfterEach
+    void deleteProfiles() {
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void anyAcrossFacets_countsEachProfileOnce() {
+        Page<UserProfile> page = search(ProfileFilter.builder()
+                .tags(ProfileFacet.GOALS, fixtures.tags("g", 3), Match.ANY)
+                .tags(ProfileFacet.SKILLS, fixtures.tags("s", 3), Match.ANY)
+                .tags(ProfileFacet.INTERESTS, fixtures.tags("i", 3), Match.ANY)
+                .build());
+        assertEquals(1, page.getTotalElements());
+        assertEquals(everyTag.getId(), page.getContent().get(0).getId());
+
+        page = search(ProfileFilter.builder()
+                .tags(ProfileFacet.GOALS, fixtures.tags("g", 1), Match.ANY)
+                .tags(ProfileFacet.SKILLS, fixtures.tags("s", 3), Match.ANY)
+                .build());
+        assertEquals(2, page.getTotalElements());
+        assertEquals(2, page.getContent().size());
+    }
+
+    @Test
+    void allMatch_requiresEveryTag() {
+        Page<UserProfile> page = search(ProfileFilter.builder()
+                .tags(ProfileFacet.SKILLS, fixtures.tags("s", 2), Match.ALL)
+                .build());
+        assertEquals(1, page.getTotalElements());
+        assertEquals(everyTag.getId(), page.getContent().get(0).getId());
+
+        page = search(ProfileFilter.builder()
+                .tags(ProfileFacet.SKILLS, fixtures.tags("s0", "missing"), Match.ALL)
+                .build());
+        assertEquals(0, page.getTotalElements());
+    }
+
+    @Test
+    void pagesAcrossMatches_reportTrueTotal() {
+        Page<UserProfile> first = userProfileService.searchWithFilters(ProfileFilter.builder()
+                .tags(ProfileFacet.GOALS, fixtures.tags("g", 1), Match.ANY)
+                .build(), PageRequest.of(0, 1));
+        assertEquals(2, first.getTotalElements());
+        assertEquals(2, first.getTotalPages());
+        assertEquals(1, first.getContent().size());
+    }
+
+    @Test
+    void plan_hasNoFanOutOrDistinct() throws Exception {
+        for (Match match : Match.values()) {
+            ProfileFilterQuery sql = ProfileFilterQuery.of(ProfileFilter.builder()
+                    .query("every")
+                    .tags(ProfileFacet.GOALS, fixtures.tags("g", 3), match)
+                    .tags(ProfileFacet.SKILLS, fixtures.tags("s", 3), match)
+                    .tags(ProfileFacet.INTERESTS, fixtures.tags("i", 3), match)
+                    .build());
+            assertFalse(sql.selectSql().contains("DISTINCT up"), sql.selectSql());
+
+            for (String query : List.of(sql.selectSql(), sql.countSql())) {
+                String json = jdbcTemplate.queryForObject("EXPLAIN (ANALYZE, FORMAT JSON) " + query, sql.params(), String.class);
+                JsonNode plan = objectMapper.readTree(json).get(0).get("Plan");
+                JsonNode profileScan = findProfileScan(plan);
+                assertNotNull(profileScan, json);
+                assertNoFanOut(plan, rows(profileScan), json);
+            }
+        }
+    }
+
+    // Every node above the user_profiles scan must emit at most as many rows as the scan did,
+    // and none of them may be a Unique (DISTINCT) step
+    private static void assertNoFanOut(JsonNode node, double profileRows, String json) {
+        if (findProfileScan(node) == null) return;
+        assertNotEquals("Unique", node.path("Node Type").asText(), json);
+        assertTrue(rows(node) <= profileRows, "fan-out at " + node.path("Node Type").asText() + ": " + json);
+        for (JsonNode child : node.path("Plans")) {
+            assertNoFanOut(child, profileRows, json);
+        }
+    }
+
+    private static JsonNode findProfileScan(JsonNode node) {
+        if ("user_profiles".equals(node.path("Relation Name").asText())) return node;
+        for (JsonNode child : node.path("Plans")) {
+            JsonNode found = findProfileScan(child);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    private static double rows(JsonNode node) {
+        return node.path("Actual Rows").asDouble() * Math.max(1, node.path("Actual Loops").asDouble());
+    }
+
+    private Page<UserProfile> search(ProfileFilter filter) {
+        return userProfileService.searchWithFilters(filter, PageRequest.of(0, 25));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo;
+
+import com.example.demo.entity.AuthUser;
+import com.example.demo.entity.UserProfile;
+import com.example.demo.repository.AuthUserRepository;
+import com.example.demo.service.UserProfileService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Member profiles for one test, tagged with values unique to it so other rows in the database
+ * cannot match, and deleted again by {@link #deleteAll()}.
+ */
+final class ProfileFixtures {
+
+    private final String prefix;
+    private final UserProfileService userProfileService;
+    private final AuthUserRepository authUserRepository;
+
+    // Alphanumeric, so Java and Postgres order tags alike
+    private final String tag = UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+    private final List<AuthUser> users = new ArrayList<>();
+    private final List<UserProfile> profiles = new ArrayList<>();
+
+    ProfileFixtures(String prefix, UserProfileService userProfileService, AuthUserRepository authUserRepository) {
+        this.prefix = prefix;
+        this.userProfileService = userProfileService;
+        this.authUserRepository = authUserRepository;
+    }
+
+    /** This run's tag value for the suffix. */
+    String tag(String suffix) {
+        return tag + suffix;
+    }
+
+    List<String> tags(String... suffixes) {
+        List<String> values = new ArrayList<>();
+        for (String s : suffixes) values.add(tag(s));
+        return values;
+    }
+
+    /** kind0 .. kind(n-1) */
+    List<String> tags(String kind, int n) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < n; i++) values.add(tag(kind + i));
+        return values;
+    }
+
+    /** Saves a user and its profile through UserProfileService, so every save hook runs. */
+    UserProfile create(String name, List<String> goals, List<String> skills, List<String> interests) {
+        String username = prefix + "-" + name + "-" + tag;
+        AuthUser u = new AuthUser();
+        u.setUsername(username);
+        u.setEmail(username + "@example.com");
+        u.setPassword("x");
+        u.setFirstName(name);
+        u.setLastName("Fixture");
+        u = authUserRepository.save(u);
+        users.add(u);
+
+        UserProfile p = new UserProfile();
+        p.setUser(u);
+        p.setName(name + " " + tag);
+        p.setGoals(new ArrayList<>(goals));
+        p.setSkills(new ArrayList<>(skills));
+        p.setInterests(new ArrayList<>(interests));
+        p = userProfileService.saveProfile(p);
+        profiles.add(p);
+        return p;
+    }
+
+    /** Profiles in creation order. */
+    List<UserProfile> profiles() {
+        return profiles;
+    }
+
+    void deleteAll() {
+        profiles.forEach(p -> userProfileService.deleteProfile(p.getId()));
+        users.forEach(u -> authUserRepository.deleteById(u.getId()));
+        profiles.clear();
+        users.clear();
+    }
+}
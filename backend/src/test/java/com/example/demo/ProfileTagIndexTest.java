@@ -0,0 +1,175 @@
+package com.example.demo;
+
+import com.example.demo.entity.UserProfile;
+import com.example.demo.repository.AuthUserRepository;
+import com.example.demo.repository.ProfileFacet;
+import com.example.demo.repository.ProfileFilter;
+import com.example.demo.repository.ProfileFilter.Match;
+import com.example.demo.repository.UserProfileRepository;
+import com.example.demo.service.ProfileTagIndex;
+import com.example.demo.service.UserProfileService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ProfileTagIndex must answer exactly like the SQL path (ProfileFilterQuery and the grouped
+ * facet query), both after incremental updates and after a rebuild.
+ */
+@SpringBootTest
+class ProfileTagIndexTest {
+
+    @Autowired
+    private ProfileTagIndex index;
+
+    @Autowired
+    private UserProfileService userProfileService;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private AuthUserRepository authUserRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private ProfileFixtures fixtures;
+
+    @BeforeEach
+    void createProfiles() {
+        fixtures = new ProfileFixtures("tagindex", userProfileService, authUserRepository);
+        index.rebuild();
+        fixtures.create("p1", fixtures.tags("g0", "g1"), fixtures.tags("s0", "s1", "s2"), fixtures.tags("i0"));
+        fixtures.create("p2", fixtures.tags("g0"), fixtures.tags("s0"), fixtures.tags("i0", "i1"));
+        fixtures.create("p3", fixtures.tags("g1"), fixtures.tags("s1", "s2"), fixtures.tags());
+        fixtures.create("p4", fixtures.tags("g0", "g1"), fixtures.tags("s2"), fixtures.tags("i1"));
+        fixtures.create("p5", fixtures.tags(), fixtures.tags("s0", "s1"), fixtures.tags("i0"));
+    }
+
+    @AfterEach
+    void deleteProfiles() {
+        fixtures.deleteAll();
+    }
+
+    @Test
+    void incrementalUpdates_matchSql() {
+        assertTrue(index.isReady());
+        assertAllFiltersMatchSql();
+
+        // Replace one skill and drop a goal: only those postings change
+        UserProfile p1 = userProfileService.getProfileForUpdate(fixtures.profiles().get(0).getId()).orElseThrow();
+        p1.setSkills(new ArrayList<>(fixtures.tags("s1", "s2", "s3")));
+        p1.setGoals(new ArrayList<>(fixtures.tags("g1")));
+        userProfileService.saveProfile(p1);
+        assertAllFiltersMatchSql();
+    }
+
+    @Test
+    void rebuiltIndex_matchesSql() {
+        index.rebuild();
+        assertAllFiltersMatchSql();
+    }
+
+    @Test
+    void saveCommittedDuringRebuild_isReplayedOntoNewIndex() throws Exception {
+        UserProfile p2 = fixtures.profiles().get(1);
+        try (Connection blocker = dataSource.getConnection()) {
+            // The rebuild takes its snapshot on user_profiles, then waits here for the goals scan
+            blocker.setAutoCommit(false);
+            try (Statement st = blocker.createStatement()) {
+                st.execute("LOCK TABLE user_profile_goals IN ACCESS EXCLUSIVE MODE");
+            }
+            CompletableFuture<Void> rebuild = CompletableFuture.runAsync(index::rebuild);
+            awaitBlockedOnGoals();
+
+            // Committed after the rebuild's snapshot, so the scan still sees s0
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM user_profile_skills WHERE user_profile_id = ?", p2.getId());
+                jdbcTemplate.update("INSERT INTO user_profile_skills (user_profile_id, skill) VALUES (?, ?)",
+                        p2.getId(), fixtures.tag("s9"));
+                p2.setSkills(new ArrayList<>(fixtures.tags("s9")));
+                index.profileSaved(p2);
+            });
+
+            blocker.rollback();
+            rebuild.get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of(p2.getId()), ids(ProfileFilter.builder()
+                .tags(ProfileFacet.SKILLS, fixtures.tags("s9"), Match.ANY).build(), PageRequest.of(0, 25)));
+        assertFalse(ids(ProfileFilter.builder()
+                .tags(ProfileFacet.SKILLS, fixtures.tags("s0"), Match.ANY).build(), PageRequest.of(0, 25))
+                .contains(p2.getId()));
+        assertAllFiltersMatchSql();
+    }
+
+    private void assertAllFiltersMatchSql() {
+        List<ProfileFilter> filters = List.of(
+                ProfileFilter.builder().tags(ProfileFacet.GOALS, fixtures.tags("g0", "g1"), Match.ANY).build(),
+                ProfileFilter.builder().tags(ProfileFacet.SKILLS, fixtures.tags("s1", "s2"), Match.ALL).build(),
+                ProfileFilter.builder()
+                        .tags(ProfileFacet.GOALS, fixtures.tags("g0"), Match.ANY)
+                        .tags(ProfileFacet.SKILLS, fixtures.tags("s0"), Match.ALL)
+                        .build(),
+                // Unknown tags: ignored under ANY, empty the facet under ALL
+                ProfileFilter.builder().tags(ProfileFacet.SKILLS, fixtures.tags("s0", "missing"), Match.ANY).build(),
+                ProfileFilter.builder().tags(ProfileFacet.SKILLS, fixtures.tags("s0", "missing"), Match.ALL).build(),
+                ProfileFilter.builder().tags(ProfileFacet.GOALS, fixtures.tags("missing"), Match.ANY).build(),
+                ProfileFilter.builder().tags(ProfileFacet.INTERESTS, fixtures.tags("i0", "i1"), Match.ANY).build());
+
+        for (ProfileFilter filter : filters) {
+            for (Pageable pageable : List.of(PageRequest.of(0, 25), PageRequest.of(0, 2),
+                                             PageRequest.of(1, 2), PageRequest.of(2, 2), PageRequest.of(1, 3))) {
+                ProfileTagIndex.IdPage page = index.page(filter, pageable);
+                assertNotNull(page);
+                var sql = userProfileRepository.searchWithFilters(filter, pageable);
+                assertEquals(sql.getTotalElements(), page.total(), filter + " " + pageable);
+                assertEquals(sql.map(UserProfile::getId).getContent(), page.ids(), filter + " " + pageable);
+            }
+            assertEquals(userProfileRepository.facetCounts(filter, 20), index.facetCounts(filter, 20), filter.toString());
+            assertEquals(userProfileRepository.facetCounts(filter, 1), index.facetCounts(filter, 1), filter.toString());
+        }
+    }
+
+    private List<Long> ids(ProfileFilter filter, Pageable pageable) {
+        return index.page(filter, pageable).ids();
+    }
+
+    private void awaitBlockedOnGoals() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            Integer waiting = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM pg_locks WHERE NOT granted AND relation = 'user_profile_goals'::regclass",
+                    Integer.class);
+            if (waiting != null && waiting > 0) return;
+            Thread.sleep(20);
+        }
+        throw new AssertionError("rebuild never reached the goals scan");
+    }
+}
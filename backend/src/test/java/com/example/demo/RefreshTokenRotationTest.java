@@ -0,0 +1,128 @@
+package com.example.demo;
+
+import com.example.demo.entity.AuthUser;
+import com.example.demo.repository.AuthUserRepository;
+import com.example.demo.repository.RefreshTokenRepository;
+import com.example.demo.service.JwtTokenService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class RefreshTokenRotationTest {
+
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
+    @Autowired
+    private AuthUserRepository authUserRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private AuthUser user;
+
+    @BeforeEach
+    void createUser() {
+        String name = "rotation-" + UUID.randomUUID().toString().substring(0, 8);
+        AuthUser u = new AuthUser();
+        u.setUsername(name);
+        u.setEmail(name + "@example.com");
+        u.setPassword("x");
+        u.setFirstName("Rotation");
+        u.setLastName("Test");
+        user = authUserRepository.save(u);
+    }
+
+    @AfterEach
+    void deleteUser() {
+        // refresh_tokens rows go with the user (ON DELETE CASCADE)
+        authUserRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void parallelRefreshesWithSameToken_haveExactlyOneWinner() throws Exception {
+        String token = jwtTokenService.generateTokensForUser(user, "127.0.0.1", "test").get("refresh");
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<JwtTokenService.Rotation>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return jwtTokenService.rotateRefreshToken(token, "127.0.0.1", "test");
+            }));
+        }
+        start.countDown();
+
+        int winners = 0;
+        JwtTokenService.Rotation winner = null;
+        for (Future<JwtTokenService.Rotation> result : results) {
+            try {
+                winner = result.get();
+                winners++;
+            } catch (Exception e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+        }
+        pool.shutdown();
+        assertEquals(1, winners);
+
+        // The losers must not have revoked the family: the winner's tab keeps working
+        assertNotNull(winner);
+        assertFalse(refreshTokenRepository.findByTokenId(winner.refreshTokenId()).orElseThrow().isRevoked());
+        assertNotNull(jwtTokenService.rotateRefreshToken(winner.refreshTokenId(), "127.0.0.1", "test"));
+    }
+
+    @Test
+    void reusingTokenWithinGraceWindow_keepsFamily() {
+        String first = jwtTokenService.generateTokensForUser(user, "127.0.0.1", "test").get("refresh");
+        String second = jwtTokenService.rotateRefreshToken(first, "127.0.0.1", "test").refreshTokenId();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> jwtTokenService.rotateRefreshToken(first, "127.0.0.1", "test"));
+
+        assertFalse(refreshTokenRepository.findByTokenId(second).orElseThrow().isRevoked());
+        assertNotNull(jwtTokenService.rotateRefreshToken(second, "127.0.0.1", "test"));
+    }
+
+    @Test
+    void reusingRotatedToken_revokesWholeFamily() {
+        String first = jwtTokenService.generateTokensForUser(user, "127.0.0.1", "test").get("refresh");
+        String second = jwtTokenService.rotateRefreshToken(first, "127.0.0.1", "test").refreshTokenId();
+        // A replay, not a concurrent refresh: rotated well before the grace window
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                "UPDATE refresh_tokens SET rotated_at = NOW() - INTERVAL '1 minute' WHERE token_id = ?", first));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> jwtTokenService.rotateRefreshToken(first, "127.0.0.1", "test"));
+
+        assertTrue(refreshTokenRepository.findByTokenId(second).orElseThrow().isRevoked());
+        assertThrows(IllegalArgumentException.class,
+                () -> jwtTokenService.rotateRefreshToken(second, "127.0.0.1", "test"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.benchmark;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/** Synthetic bench_* members with tags, for the database-backed search benchmarks. */
+final class BenchmarkData {
+    private static final String FIRST = "ARRAY['Alice','Bruno','Chen','Dana','Elif','Farid','Grace','Hiro','Ines','Jonas','Kofi','Lena','Mateo','Nora','Omar','Priya']";
+    private static final String LAST = "ARRAY['Anders','Baker','Costa','Dubois','Eng','Fischer','Garcia','Haddad','Ito','Jensen','Kim','Lopez','Muller','Novak','Okafor','Patel']";
+    private static final String CITY = "ARRAY['Berlin','London','Paris','Lisbon','Amsterdam','Stockholm','Warsaw','Madrid','Zurich','Vienna','Dublin','Prague']";
+    private static final String TOPIC = "ARRAY['fintech','healthtech','climate','edtech','marketplaces','developer tools','logistics','insurtech','gaming','biotech']";
+    private static final String ROLE = "ARRAY['engineer','designer','product manager','growth marketer','data scientist','founder','sales lead','operator']";
+    private static final String SKILL = "ARRAY['java','python','react','kubernetes','sql','ux','seo','fundraising','sales','go','rust','figma','ml','devops','copywriting','finance']";
+    private static final String INTEREST = "ARRAY['ai','saas','b2b','consumer','open source','web3','robotics','mobility','food','sustainability','crypto','media']";
+    private static final String GOAL = "ARRAY['find cofounder','hire','raise funding','find mentor','join startup','network','invest','learn']";
+
+    private BenchmarkData() {
+    }
+
+    static void seedProfiles(Connection connection, int target) throws SQLException {
+        connection.setAutoCommit(true);
+        int existing;
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM users WHERE username LIKE 'bench\\_%'")) {
+            rs.next();
+            existing = rs.getInt(1);
+        }
+        if (existing >= target) return;
+        try (Statement st = connection.createStatement()) {
+            st.execute("INSERT INTO users (username, email, password, first_name, last_name, role, enabled, email_verified, token_generation, created_at, updated_at) " +
+                    "SELECT 'bench_' || g, 'bench_' || g || '@bench.local', 'x', 'Bench', 'User', 'USER', true, true, 0, NOW(), NOW() " +
+                    "FROM generate_series(" + (existing + 1) + ", " + target + ") g ON CONFLICT DO NOTHING");
+            st.execute("INSERT INTO user_profiles (user_id, name, location, tagline, followers, rating, created_at, updated_at) " +
+                    "SELECT u.id, (" + FIRST + ")[1 + u.id % 16] || ' ' || (" + LAST + ")[1 + (u.id / 16) % 16], " +
+                    "(" + CITY + ")[1 + (u.id * 7) % 12], " +
+                    "(" + ROLE + ")[1 + (u.id * 3) % 8] || ' in ' || (" + TOPIC + ")[1 + (u.id * 11) % 10], 0, 0, NOW(), NOW() " +
+                    "FROM users u WHERE u.username LIKE 'bench\\_%' " +
+                    "AND NOT EXISTS (SELECT 1 FROM user_profiles p WHERE p.user_id = u.id)");
+            // The search_vector triggers would recompute every profile once per tag table; rebuild once instead
+            st.execute("ALTER TABLE user_profile_skills DISABLE TRIGGER USER");
+            st.execute("ALTER TABLE user_profile_interests DISABLE TRIGGER USER");
+            try {
+                insertTags(st, "user_profile_skills", SKILL, 16, 3);
+                insertTags(st, "user_profile_interests", INTEREST, 12, 2);
+                insertTags(st, "user_profile_goals", GOAL, 8, 2);
+            } finally {
+                st.execute("ALTER TABLE user_profile_skills ENABLE TRIGGER USER");
+                st.execute("ALTER TABLE user_profile_interests ENABLE TRIGGER USER");
+            }
+            st.execute("UPDATE user_profiles SET search_vector = user_profile_search_document(id, name, tagline, location, " +
+                    "short_description, looking_for, offering) WHERE user_id IN (SELECT id FROM users WHERE username LIKE 'bench\\_%')");
+            st.execute("ANALYZE user_profiles");
+        }
+    }
+
+    // perProfile distinct tags per new bench profile, spread deterministically by id
+    private static void insertTags(Statement st, String table, String values, int size, int perProfile) throws SQLException {
+        st.execute("INSERT INTO " + table + " " +
+                "SELECT p.id, (" + values + ")[1 + (p.id * 31 + k * " + (size / perProfile) + ") % " + size + "] " +
+                "FROM user_profiles p JOIN users u ON u.id = p.user_id CROSS JOIN generate_series(0, " + (perProfile - 1) + ") k " +
+                "WHERE u.username LIKE 'bench\\_%' AND NOT EXISTS (SELECT 1 FROM " + table + " t WHERE t.user_profile_id = p.id)");
+        st.execute("ANALYZE " + table);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.EmailTemplateService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Email bodies rendered per second on one core, from EmailTemplateService's cached templates:
+ * one render per call, and a digest-style batch of {@code batchSize} recipients per call
+ * (multiply its score by batchSize for renders/sec).
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.example.demo.benchmark.EmailTemplateRenderBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailTemplateRenderBenchmark {
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private EmailTemplateService templates;
+    private Map<String, Object> single;
+    private List<Map<String, Object>> batch;
+
+    @Setup
+    public void setUp() {
+        templates = new EmailTemplateService();
+        single = Map.of("link", "https://app.example.com/verify-email?token=0f8c2c1e-6a55-4c1b-9d0e-8a6c1d2b3e4f");
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(Map.of("link", "https://app.example.com/verify-email?token=" + i));
+        }
+    }
+
+    @Benchmark
+    public String single() {
+        return templates.render(EmailTemplateService.VERIFY_EMAIL, single);
+    }
+
+    @Benchmark
+    public List<String> batch() {
+        return templates.renderBatch(EmailTemplateService.VERIFY_EMAIL, batch);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(EmailTemplateRenderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
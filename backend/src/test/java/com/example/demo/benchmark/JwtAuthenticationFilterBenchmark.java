@@ -0,0 +1,212 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.AuthUser;
+import com.example.demo.repository.AuthUserRepository;
+import com.example.demo.security.JwtAuthenticationFilter;
+import com.example.demo.security.JwtUtil;
+import com.example.demo.service.PgNotificationBus;
+import com.example.demo.service.UserReferenceCache;
+import com.example.demo.service.UserStatusCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Access-token authentication throughput before and after the single-parse filter:
+ * "before" is a copy of the original filter (three signature-verifying parses with a parser
+ * built per call, plus a UserDetails load per request); "claims" is the current filter on a
+ * token carrying userId + role; "legacy" is the current filter on a subject-only token, which
+ * still loads UserDetails. UserDetails come from the users table of a real database, so the
+ * per-request query is part of the measurement.
+ *
+ * Needs a migrated database (start the app against it once); the bench_1 user is seeded if
+ * missing.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.example.demo.benchmark.JwtAuthenticationFilterBenchmark
+ *   -Dbench.url=jdbc:postgresql://localhost:5432/project1_bench -Dbench.user=postgres -Dbench.password=...
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "BenchmarkSecretKeyThatIsLongEnoughForHmacSha256Signing0123456789";
+    private static final String USERNAME = "bench_1";
+
+    @Param({"before", "claims", "legacy"})
+    public String path;
+
+    private SingleConnectionDataSource dataSource;
+    private OncePerRequestFilter filter;
+    private String header;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = new SingleConnectionDataSource(
+                System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/project1_bench"),
+                System.getProperty("bench.user", "postgres"),
+                System.getProperty("bench.password", ""), true);
+        try (Connection connection = dataSource.getConnection()) {
+            BenchmarkData.seedProfiles(connection, 1);
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        // The query CustomUserDetailsService runs through AuthUserRepository.findByUsername
+        UserDetailsService userDetailsService = username -> jdbcTemplate.queryForObject(
+                "SELECT username, password, role, enabled FROM users WHERE username = ?",
+                (rs, i) -> User.withUsername(rs.getString("username"))
+                        .password(rs.getString("password"))
+                        .roles(rs.getString("role"))
+                        .disabled(!rs.getBoolean("enabled"))
+                        .build(),
+                username);
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, USERNAME);
+
+        JwtUtil jwtUtil = new JwtUtil(SECRET, TimeUnit.HOURS.toMillis(1), "k1", "");
+        if ("before".equals(path)) {
+            filter = new BaselineFilter(SECRET, userDetailsService);
+        } else {
+            AuthUser user = new AuthUser();
+            user.setId(userId);
+            user.setUsername(USERNAME);
+            // Served from UserStatusCache and UserReferenceCache after the first request
+            AuthUserRepository repository = Mockito.mock(AuthUserRepository.class);
+            AuthUserRepository.TokenStatus status = Mockito.mock(AuthUserRepository.TokenStatus.class);
+            Mockito.when(status.getEnabled()).thenReturn(true);
+            Mockito.when(status.getTokenGeneration()).thenReturn(0);
+            Mockito.when(repository.findTokenStatusById(userId)).thenReturn(Optional.of(status));
+            Mockito.when(repository.findByUsername(USERNAME)).thenReturn(Optional.of(user));
+
+            JwtAuthenticationFilter current = new JwtAuthenticationFilter();
+            ReflectionTestUtils.setField(current, "jwtUtil", jwtUtil);
+            ReflectionTestUtils.setField(current, "userDetailsService", userDetailsService);
+            ReflectionTestUtils.setField(current, "userReferenceCache", new UserReferenceCache(repository,
+                    Mockito.mock(PgNotificationBus.class), new ObjectMapper()));
+            ReflectionTestUtils.setField(current, "userStatusCache", new UserStatusCache(repository, 30));
+            filter = current;
+        }
+
+        Map<String, Object> claims = "claims".equals(path)
+                ? Map.of("userId", userId, "role", "USER", "gen", 0)
+                : Map.of();
+        header = "Bearer " + jwtUtil.generateToken(USERNAME, claims);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public Authentication authenticate() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/chat/unread-count");
+        request.addHeader("Authorization", header);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    /** JwtAuthenticationFilter and the JwtUtil methods it called, as they were before the single-parse change. */
+    static final class BaselineFilter extends OncePerRequestFilter {
+        private final String secret;
+        private final UserDetailsService userDetailsService;
+
+        BaselineFilter(String secret, UserDetailsService userDetailsService) {
+            this.secret = secret;
+            this.userDetailsService = userDetailsService;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                throws ServletException, IOException {
+            final String authorizationHeader = request.getHeader("Authorization");
+
+            String username = null;
+            String jwt = null;
+
+            if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+                jwt = authorizationHeader.substring(7);
+                try {
+                    username = extractClaim(jwt, Claims::getSubject);
+                } catch (Exception e) {
+                    logger.error("JWT token extraction failed: " + e.getMessage());
+                }
+            }
+
+            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+
+                if (validateToken(jwt, userDetails)) {
+                    UsernamePasswordAuthenticationToken authenticationToken =
+                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+                }
+            }
+
+            filterChain.doFilter(request, response);
+        }
+
+        private boolean validateToken(String token, UserDetails userDetails) {
+            final String username = extractClaim(token, Claims::getSubject);
+            return username.equals(userDetails.getUsername())
+                    && !extractClaim(token, Claims::getExpiration).before(new Date());
+        }
+
+        private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
+            return claimsResolver.apply(Jwts.parserBuilder()
+                    .setSigningKey(getSigningKey())
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody());
+        }
+
+        private SecretKey getSigningKey() {
+            return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access tokens verified per second on one core. "perCall" rebuilds the key and parser for every
+ * token, as JwtUtil used to; "shared" goes through JwtUtil's prebuilt parser, once for a token
+ * signed with the current key and once for one signed with a rotated-out key.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.example.demo.benchmark.JwtParseBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtParseBenchmark {
+
+    private static final String OLD_SECRET = "PreviousBenchmarkSecretKeyLongEnoughForHmacSha256Signing012345";
+    private static final String SECRET = "BenchmarkSecretKeyThatIsLongEnoughForHmacSha256Signing0123456789";
+    private static final Map<String, Object> CLAIMS = Map.of("userId", 1L, "role", "USER", "email", "alice@example.com");
+
+    private JwtUtil jwtUtil;
+    private String currentKeyToken;
+    private String previousKeyToken;
+
+    @Setup
+    public void setUp() {
+        long ttl = TimeUnit.HOURS.toMillis(1);
+        jwtUtil = new JwtUtil(SECRET, ttl, "k2", "k1:" + OLD_SECRET);
+        currentKeyToken = jwtUtil.generateToken("alice", CLAIMS);
+        previousKeyToken = new JwtUtil(OLD_SECRET, ttl, "k1", "").generateToken("alice", CLAIMS);
+    }
+
+    @Benchmark
+    public Claims perCall() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(currentKeyToken)
+                .getBody();
+    }
+
+    @Benchmark
+    public Claims sharedCurrentKey() {
+        return jwtUtil.parseVerifiedClaims(currentKeyToken);
+    }
+
+    @Benchmark
+    public Claims sharedPreviousKey() {
+        return jwtUtil.parseVerifiedClaims(previousKeyToken);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JwtParseBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
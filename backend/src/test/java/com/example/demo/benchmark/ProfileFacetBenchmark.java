@@ -0,0 +1,120 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.ProfileFacetCounts;
+import com.example.demo.repository.ProfileFacet;
+import com.example.demo.repository.ProfileFilter;
+import com.example.demo.repository.ProfileFilter.Match;
+import com.example.demo.repository.ProfileFilterQuery;
+import com.example.demo.service.PgNotificationBus;
+import com.example.demo.service.ProfileTagIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Facet count latency (p50/p99 from JMH's sample mode) for GET /api/members/facets, comparing
+ * the grouped SQL statement of UserProfileRepositoryImpl.facetCounts with ProfileTagIndex.
+ *
+ * Same database setup as {@link ProfileSearchBenchmark}: missing profiles up to -Dbench.profiles
+ * (default 1,000,000) are seeded as bench_* users on first run. The index is built once in
+ * setup, outside the measurement.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.example.demo.benchmark.ProfileFacetBenchmark
+ *   -Dbench.url=jdbc:postgresql://localhost:5432/project1_bench -Dbench.user=postgres -Dbench.password=...
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProfileFacetBenchmark {
+
+    private static final int LIMIT = 20;
+
+    // none: every profile; goal: one common goal; skills: two skills under ALL
+    @Param({"none", "goal", "skills"})
+    private String filter;
+
+    private ProfileFilter profileFilter;
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    private String sql;
+    private Map<String, Object> params;
+    private ProfileTagIndex index;
+
+    @Setup
+    public void setUp() throws SQLException {
+        String url = System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/project1_bench");
+        String user = System.getProperty("bench.user", "postgres");
+        String password = System.getProperty("bench.password", "");
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, user, password);
+        try (Connection connection = dataSource.getConnection()) {
+            BenchmarkData.seedProfiles(connection, Integer.getInteger("bench.profiles", 1_000_000));
+        }
+
+        profileFilter = switch (filter) {
+            case "goal" -> ProfileFilter.builder().tags(ProfileFacet.GOALS, List.of("hire"), Match.ANY).build();
+            case "skills" -> ProfileFilter.builder().tags(ProfileFacet.SKILLS, List.of("java", "sql"), Match.ALL).build();
+            default -> ProfileFilter.builder().build();
+        };
+
+        // The statement UserProfileRepositoryImpl.facetCounts issues
+        ProfileFilterQuery matched = ProfileFilterQuery.of(profileFilter);
+        StringBuilder statement = new StringBuilder("WITH matched AS MATERIALIZED (").append(matched.idsSql()).append(") ")
+                .append("SELECT 'total' AS facet, NULL AS value, COUNT(*) AS n FROM matched");
+        for (ProfileFacet facet : ProfileFacet.values()) {
+            String column = "t." + facet.column();
+            statement.append(" UNION ALL (SELECT '").append(facet.key()).append("', ").append(column)
+                     .append(", COUNT(DISTINCT t.user_profile_id) FROM ").append(facet.table())
+                     .append(" t JOIN matched m ON m.id = t.user_profile_id WHERE ").append(column).append(" IS NOT NULL")
+                     .append(" GROUP BY ").append(column).append(" ORDER BY 3 DESC, 2 LIMIT :facetLimit)");
+        }
+        sql = statement.toString();
+        params = new HashMap<>(matched.params());
+        params.put("facetLimit", LIMIT);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        index = new ProfileTagIndex(jdbcTemplate, transactionTemplate,
+                new PgNotificationBus(jdbcTemplate, transactionTemplate, url, user, password),
+                new SimpleMeterRegistry());
+        index.rebuild();
+    }
+
+    @Benchmark
+    public long sql() {
+        long[] sum = {0};
+        namedJdbcTemplate.query(sql, params, rs -> {
+            sum[0] += rs.getLong("n");
+        });
+        return sum[0];
+    }
+
+    @Benchmark
+    public long index() {
+        ProfileFacetCounts counts = index.facetCounts(profileFilter, LIMIT);
+        return counts.total() + counts.facets().size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ProfileFacetBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
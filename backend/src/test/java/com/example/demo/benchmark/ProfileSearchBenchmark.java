@@ -0,0 +1,107 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.TextSearchQuery;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Member search latency (p50/p99 from JMH's sample mode) for one result page plus its count,
+ * comparing the old LOWER(..) LIKE '%q%' query with the search_vector full-text query.
+ *
+ * Needs a migrated database (start the app against it once). Missing profiles up to
+ * -Dbench.profiles (default 1,000,000) are seeded as bench_* users on first run, which takes a
+ * few minutes; use a scratch database, not a shared one.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.example.demo.benchmark.ProfileSearchBenchmark
+ *   -Dbench.url=jdbc:postgresql://localhost:5432/project1_bench -Dbench.user=postgres -Dbench.password=...
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProfileSearchBenchmark {
+
+    private static final String LIKE_PAGE =
+            "SELECT up.id FROM user_profiles up WHERE LOWER(up.name) LIKE LOWER(CONCAT('%', ?, '%')) " +
+            "OR LOWER(up.tagline) LIKE LOWER(CONCAT('%', ?, '%')) OR LOWER(up.location) LIKE LOWER(CONCAT('%', ?, '%')) " +
+            "LIMIT 25";
+    private static final String LIKE_COUNT =
+            "SELECT COUNT(*) FROM user_profiles up WHERE LOWER(up.name) LIKE LOWER(CONCAT('%', ?, '%')) " +
+            "OR LOWER(up.tagline) LIKE LOWER(CONCAT('%', ?, '%')) OR LOWER(up.location) LIKE LOWER(CONCAT('%', ?, '%'))";
+    private static final String FTS_PAGE =
+            "SELECT up.id FROM user_profiles up, to_tsquery('simple', ?) q WHERE up.search_vector @@ q " +
+            "ORDER BY ts_rank(up.search_vector, q) DESC, up.id LIMIT 25";
+    private static final String FTS_COUNT =
+            "SELECT COUNT(*) FROM user_profiles up WHERE up.search_vector @@ to_tsquery('simple', ?)";
+
+    @Param({"ali", "engineer", "berlin fintech"})
+    private String query;
+
+    private Connection connection;
+    private PreparedStatement likePage;
+    private PreparedStatement likeCount;
+    private PreparedStatement ftsPage;
+    private PreparedStatement ftsCount;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/project1_bench"),
+                System.getProperty("bench.user", "postgres"),
+                System.getProperty("bench.password", ""));
+        BenchmarkData.seedProfiles(connection, Integer.getInteger("bench.profiles", 1_000_000));
+        likePage = connection.prepareStatement(LIKE_PAGE);
+        likeCount = connection.prepareStatement(LIKE_COUNT);
+        ftsPage = connection.prepareStatement(FTS_PAGE);
+        ftsCount = connection.prepareStatement(FTS_COUNT);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long like() throws SQLException {
+        for (PreparedStatement ps : new PreparedStatement[]{likePage, likeCount}) {
+            ps.setString(1, query);
+            ps.setString(2, query);
+            ps.setString(3, query);
+        }
+        return drain(likePage) + drain(likeCount);
+    }
+
+    @Benchmark
+    public long fullText() throws SQLException {
+        String tsquery = TextSearchQuery.prefix(query);
+        ftsPage.setString(1, tsquery);
+        ftsCount.setString(1, tsquery);
+        return drain(ftsPage) + drain(ftsCount);
+    }
+
+    private static long drain(PreparedStatement ps) throws SQLException {
+        long sum = 0;
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) sum += rs.getLong(1);
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ProfileSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -6,7 +6,7 @@ export async function GET(req: NextRequest, { params }: { params: { username: st
     const refreshToken = req.cookies.get('refreshToken')?.value
 
     const fetchMessages = async (token?: string) => {
-        const res = await fetch(`${backend}/api/chat/messages/${params.username}`, {
+        const res = await fetch(`${backend}/api/chat/messages/${params.username}${req.nextUrl.search}`, {
             method: 'GET',
             headers: { 'Content-Type': 'application/json', ...(token ? { Authorization: `Bearer ${token}` } : {}) },
         } as RequestInit)
@@ -19,7 +19,10 @@ export async function GET(req: NextRequest, { params }: { params: { username: st
         // First attempt with current access token (if present)
         let { res, data } = await fetchMessages(accessToken)
         if (res.status !== 401) {
-            return NextResponse.json(data, { status: res.status })
+            const response = NextResponse.json(data, { status: res.status })
+            const nextCursor = res.headers.get('X-Next-Cursor')
+            if (nextCursor) response.headers.set('X-Next-Cursor', nextCursor)
+            return response
         }
         // If unauthorized and we have a refresh token, try refreshing then retry
         if (refreshToken) {